@@ -23,122 +23,647 @@
  */
 package org.jls.filerenamer;
 
-import java.text.SimpleDateFormat;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
+import javax.swing.filechooser.FileSystemView;
 
-import org.apache.commons.io.FilenameUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.jls.filerenamer.rename.CollisionMode;
+import org.jls.filerenamer.rename.JournalBatch;
+import org.jls.filerenamer.rename.NameGenerator;
+import org.jls.filerenamer.rename.NameMapping;
+import org.jls.filerenamer.rename.OutcomeReason;
+import org.jls.filerenamer.rename.RegexReplacement;
+import org.jls.filerenamer.rename.RenameExecutor;
+import org.jls.filerenamer.rename.RenameJournal;
+import org.jls.filerenamer.rename.RenameOperation;
+import org.jls.filerenamer.rename.RenameOutcome;
+import org.jls.filerenamer.rename.RenamePlan;
+import org.jls.filerenamer.rename.RenamePlanBuilder;
+import org.jls.filerenamer.rename.RenamePlanExporter;
+import org.jls.filerenamer.rename.RenameReport;
+import org.jls.filerenamer.rename.RenameRule;
+import org.jls.filerenamer.rename.RenameSummary;
+import org.jls.filerenamer.rename.RenameTemplate;
+import org.jls.filerenamer.rename.RuleChain;
+import org.jls.filerenamer.rename.SpilledRenamePlan;
+import org.jls.filerenamer.rename.TagContext;
 import org.jls.filerenamer.util.FileFilter;
 import org.jls.filerenamer.util.FileInfo;
 import org.jls.filerenamer.util.MalformedTagException;
-import org.jls.filerenamer.util.Tag;
+import org.jls.filerenamer.util.TaskProgress;
 
 public class ApplicationController {
 
+    private static final int MAX_REPORTED_NAMES = 10;
+    // Number of files listed or filtered between two checks of cancellation
+    private static final int CHUNK_SIZE = 1024;
+    // Number of files renamed at once by a tree rename, rounded up to whole directories
+    private static final int TREE_PLAN_SIZE = 50000;
+
     private final ApplicationModel model;
     private final ApplicationView view;
     private final Logger logger;
+    private final RenameJournal journal;
+    private final RenameExecutor renameExecutor;
+    private CompletableFuture<?> runningBatch;
+    private volatile NameMapping nameMapping;
+    private TaskProgress listing;
+    private TaskProgress previewing;
+    private CompletableFuture<?> runningPreview;
 
     public ApplicationController(final ApplicationModel model) {
         this.model = model;
         this.view = new ApplicationView(model, this);
         this.logger = LogManager.getLogger();
+        this.journal = new RenameJournal(RenameJournal.DEFAULT_PATH);
+        this.renameExecutor = new RenameExecutor(this.journal);
+        this.runningBatch = CompletableFuture.completedFuture(null);
+        this.runningPreview = CompletableFuture.completedFuture(null);
     }
 
     public void showGui() {
         this.view.showGui();
+        checkInterruptedBatch();
     }
 
+    // Selecting another directory cancels the listing of the previous one
+    public void listDirectory(final File directory) {
+        if (this.listing != null) {
+            this.listing.cancel();
+        }
+        TaskProgress progress = startTask("Listing " + directory.getName(), -1);
+        this.listing = progress;
+        FileSystemView fileSystemView = this.model.getFileSystemView();
+        CompletableFuture.supplyAsync(() -> {
+            ArrayList<FileInfo> files = new ArrayList<>();
+            long nbEntries = 0;
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory.toPath())) {
+                for (Path path : stream) {
+                    if (nbEntries++ % CHUNK_SIZE == 0) {
+                        progress.checkCancelled();
+                    }
+                    File file = path.toFile();
+                    if (!fileSystemView.isHiddenFile(file)) {
+                        files.add(new FileInfo(file));
+                    }
+                    progress.advance(1);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return files;
+        }).whenComplete((files, error) -> {
+            progress.finish();
+            if (error != null && !progress.isCancelled()) {
+                this.logger.error("Cannot list directory : " + directory, error);
+            }
+            SwingUtilities.invokeLater(() -> {
+                if (!progress.isCancelled() && error == null) {
+                    this.model.setFileSelection(files);
+                }
+            });
+        });
+    }
+
+    // A cancelled filter leaves the current selection unchanged
     public void applyFileFilter(final FileFilter filter) {
-        if (filter != null) {
-            this.logger.debug("Aplying filter : " + filter.toString());
+        if (filter == null) {
+            this.logger.debug("Filter ignored because it is null");
+            return;
+        }
+        this.logger.debug("Aplying filter : " + filter.toString());
+        ArrayList<FileInfo> selection = this.model.getCurrentFileSelection();
+        TaskProgress progress = startTask("Filtering", selection.size());
+        CompletableFuture.supplyAsync(() -> {
             ArrayList<FileInfo> acceptedFiles = new ArrayList<>();
-            for (FileInfo file : this.model.getCurrentFileSelection()) {
+            for (int i = 0; i < selection.size(); i++) {
+                if (i % CHUNK_SIZE == 0) {
+                    progress.checkCancelled();
+                    progress.advance(Math.min(CHUNK_SIZE, selection.size() - i));
+                }
+                FileInfo file = selection.get(i);
                 if (filter.accept(file.getFile())) {
                     acceptedFiles.add(file);
                 }
             }
-            this.model.setCurrentFileSelection(acceptedFiles);
-            return;
+            return acceptedFiles;
+        }).whenComplete((acceptedFiles, error) -> {
+            progress.finish();
+            if (error != null) {
+                if (!progress.isCancelled()) {
+                    this.logger.error("Failed to apply filter : " + filter, error);
+                }
+                return;
+            }
+            SwingUtilities.invokeLater(() -> {
+                if (this.model.getCurrentFileSelection() == selection) {
+                    this.model.setCurrentFileSelection(acceptedFiles);
+                }
+            });
+        });
+    }
+
+    // A null extension keeps the extension of each file
+    public void previewCurrentSelection(final String pattern, final String sourceRegex, final String extension,
+                                        final CollisionMode collisionMode) throws MalformedTagException {
+        String newExtension = toExtension(extension);
+        preview(compilePattern(pattern, sourceRegex, newExtension), newExtension, collisionMode);
+    }
+
+    public void previewReplacement(final String find, final String replacement, final boolean ignoreCase,
+                                   final boolean replaceAll, final String extension,
+                                   final CollisionMode collisionMode) throws MalformedTagException {
+        preview(RegexReplacement.compile(find, replacement, ignoreCase, replaceAll), toExtension(extension),
+                collisionMode);
+    }
+
+    public RenameRule createRenameRule(final FileFilter filter, final String pattern, final String sourceRegex)
+            throws MalformedTagException {
+        return new RenameRule(filter, RenameTemplate.compile(pattern, sourceRegex));
+    }
+
+    // The rules are evaluated in a single pass over the selection, no filter has to be applied first
+    public void previewRules(final List<RenameRule> rules, final String extension, final CollisionMode collisionMode)
+            throws MalformedTagException {
+        preview(new RuleChain(rules), toExtension(extension), collisionMode);
+    }
+
+    private void preview(final NameGenerator generator, final String extension,
+                         final CollisionMode collisionMode) {
+        ArrayList<FileInfo> selection = this.model.getCurrentFileSelection();
+        ArrayList<FileInfo> orderedFiles = this.view.getFilesInDisplayOrder();
+        TagContext context = TagContext.now(this.nameMapping);
+        String description = RenamePlanBuilder.describe(generator, extension);
+        // A new preview cancels the previous one, and starts once it stopped since both set the new names of the files
+        if (this.previewing != null) {
+            this.previewing.cancel();
         }
-        this.logger.debug("Filter ignored because it is null");
+        TaskProgress progress = startTask("Preview", orderedFiles.size());
+        this.previewing = progress;
+        this.runningPreview = this.runningPreview.handle((result, error) -> null)
+                .thenApplyAsync(v -> RenamePlanBuilder.build(selection, orderedFiles, generator, extension, context,
+                        collisionMode, progress))
+                .whenComplete((plan, error) -> {
+                    progress.finish();
+                    if (error != null && progress.isCancelled()) {
+                        // The files renamed before the cancellation must not show a name from no plan, unless a
+                        // newer preview already renames them
+                        this.logger.info("Preview cancelled : " + description);
+                        SwingUtilities.invokeLater(() -> {
+                            if (this.previewing == progress) {
+                                for (FileInfo file : orderedFiles) {
+                                    file.setNewName("");
+                                }
+                                this.model.setRenamePlan(null);
+                            }
+                        });
+                    } else if (error != null) {
+                        this.logger.error("Failed to compute preview : " + description, error);
+                        SwingUtilities.invokeLater(this.model::notifyNewNamesChanged);
+                    } else {
+                        SwingUtilities.invokeLater(() -> {
+                            if (this.previewing == progress) {
+                                this.model.setRenamePlan(plan);
+                            }
+                        });
+                        reportImportedNames(context);
+                    }
+                });
     }
 
-    public void renameCurrentSelection(final String pattern, final boolean preview) throws MalformedTagException {
-        Matcher m = Pattern.compile("\\{(.*?)}").matcher(pattern);
-        ArrayList<Tag> tags = new ArrayList<>();
-        int cpt = 0;
-        while (m.find()) {
-            Tag tag;
-            String tagStr = m.group(1);
-            if (tagStr.contains("{") || tagStr.contains("}")) {
-                throw new MalformedTagException("Nested brackets detected : " + tagStr);
+    public void loadNameMapping(final File file) {
+        CompletableFuture.supplyAsync(() -> {
+            try {
+                return NameMapping.load(file.toPath());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
+        }).whenComplete((mapping, error) -> {
+            if (error != null) {
+                this.logger.error("Cannot load name mapping : " + file, error);
+                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this.view,
+                        "Cannot load name mapping : " + file + "\n\n" + error.getCause().getMessage(),
+                        "Imported Names", JOptionPane.ERROR_MESSAGE));
+                return;
+            }
+            this.nameMapping = mapping;
+            this.logger.info("Name mapping loaded : " + mapping);
+            SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this.view, mapping.size()
+                    + " names loaded from " + file.getName() + " (" + mapping.getNbIgnoredRows() + " rows ignored)",
+                    "Imported Names", JOptionPane.INFORMATION_MESSAGE));
+        });
+    }
+
+    // Unmatched names are only reported, the files without imported name keep their base name
+    private void reportImportedNames(final TagContext context) {
+        if (!context.isNameMappingUsed()) {
+            return;
+        }
+        List<String> unmatchedRows = context.getUnmatchedRows();
+        long nbUnmappedFiles = context.getNbUnmappedFiles();
+        if (unmatchedRows.isEmpty() && nbUnmappedFiles == 0) {
+            return;
+        }
+        this.logger.warn(nbUnmappedFiles + " files without imported name, " + unmatchedRows.size()
+                + " names matching no file : " + unmatchedRows);
+        StringBuilder msg = new StringBuilder();
+        msg.append(nbUnmappedFiles).append(" files have no imported name and keep their name.\n");
+        msg.append(unmatchedRows.size()).append(" imported names match no file");
+        for (int i = 0; i < Math.min(MAX_REPORTED_NAMES, unmatchedRows.size()); i++) {
+            msg.append(i == 0 ? " :\n" : "\n").append(unmatchedRows.get(i));
+        }
+        if (unmatchedRows.size() > MAX_REPORTED_NAMES) {
+            msg.append("\n...");
+        }
+        SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this.view, msg.toString(), "Imported Names",
+                JOptionPane.WARNING_MESSAGE));
+    }
+
+    public boolean isPreviewUpToDate(final String pattern, final String sourceRegex, final String extension) {
+        try {
+            String newExtension = toExtension(extension);
+            return isPreviewOf(compilePattern(pattern, sourceRegex, newExtension), newExtension);
+        } catch (MalformedTagException e) {
+            return false;
+        }
+    }
+
+    public boolean isReplacementUpToDate(final String find, final String replacement, final boolean ignoreCase,
+                                         final boolean replaceAll, final String extension) {
+        try {
+            return isPreviewOf(RegexReplacement.compile(find, replacement, ignoreCase, replaceAll),
+                    toExtension(extension));
+        } catch (MalformedTagException e) {
+            return false;
+        }
+    }
+
+    public boolean isRulesPreviewUpToDate(final List<RenameRule> rules, final String extension) {
+        try {
+            return isPreviewOf(new RuleChain(rules), toExtension(extension));
+        } catch (MalformedTagException e) {
+            return false;
+        }
+    }
+
+    private boolean isPreviewOf(final NameGenerator generator, final String extension) {
+        RenamePlan plan = this.model.getRenamePlan();
+        return plan != null && plan.isPlanOf(RenamePlanBuilder.describe(generator, extension),
+                this.model.getCurrentFileSelection());
+    }
+
+    public void applyRenamePlan() {
+        RenamePlan plan = this.model.getRenamePlan();
+        if (plan == null) {
+            this.logger.debug("No rename plan to apply");
+            return;
+        }
+        if (!this.runningBatch.isDone()) {
+            this.logger.warn("Rename plan ignored because another batch is running : " + plan);
+            return;
+        }
+        this.runningBatch = startBatch("Rename", plan);
+        this.model.setRenamePlan(null);
+    }
+
+    // Dry run : the previewed plan is written to a CSV or NDJSON file instead of being applied
+    public void exportRenamePlan(final File file) {
+        RenamePlan plan = this.model.getRenamePlan();
+        if (plan == null) {
+            this.logger.debug("No rename plan to export");
+            return;
+        }
+        RenamePlanExporter.Format format = RenamePlanExporter.Format.of(file.toPath());
+        CompletableFuture.supplyAsync(() -> {
             try {
-                tag = Tag.valueOf(tagStr.toUpperCase());
-            } catch (IllegalArgumentException e) {
-                throw new MalformedTagException("Unknown tag : " + tagStr, e);
+                return RenamePlanExporter.export(plan, file.toPath(), format);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }).whenComplete((nbOperations, error) -> {
+            if (error != null) {
+                this.logger.error("Cannot export rename plan : " + file, error);
+                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this.view,
+                        "Cannot export rename plan : " + file + "\n\n" + error.getCause().getMessage(),
+                        "Export", JOptionPane.ERROR_MESSAGE));
+                return;
             }
-            tags.add(tag);
-            cpt++;
+            this.logger.info("Rename plan exported to " + file + " (" + format + ") : " + plan);
+            SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this.view, nbOperations
+                    + " files exported to " + file.getName(), "Export", JOptionPane.INFORMATION_MESSAGE));
+        });
+    }
+
+    public void renameTree(final File root, final FileFilter filter, final String pattern, final String sourceRegex,
+                           final String extension, final CollisionMode collisionMode) throws MalformedTagException {
+        String newExtension = toExtension(extension);
+        renameTree(root, filter, compilePattern(pattern, sourceRegex, newExtension), newExtension, collisionMode);
+    }
+
+    public void renameTreeWithReplacement(final File root, final FileFilter filter, final String find,
+                                          final String replacement, final boolean ignoreCase,
+                                          final boolean replaceAll, final String extension,
+                                          final CollisionMode collisionMode) throws MalformedTagException {
+        renameTree(root, filter, RegexReplacement.compile(find, replacement, ignoreCase, replaceAll),
+                toExtension(extension), collisionMode);
+    }
+
+    public void renameTreeWithRules(final File root, final List<RenameRule> rules, final String extension,
+                                    final CollisionMode collisionMode) throws MalformedTagException {
+        renameTree(root, null, new RuleChain(rules), toExtension(extension), collisionMode);
+    }
+
+    /*
+     * Renames every file of a directory tree in bounded memory : the plan is spilled to disk and applied as a
+     * stream of plans of whole directories, without going through the file table. These plans form a single batch
+     * of the journal, so the whole tree can be reverted.
+     */
+    private void renameTree(final File root, final FileFilter filter, final NameGenerator generator,
+                            final String extension, final CollisionMode collisionMode) {
+        if (!this.runningBatch.isDone()) {
+            this.logger.warn("Tree rename ignored because another batch is running : " + root);
+            return;
         }
+        TagContext context = TagContext.now(this.nameMapping);
+        TaskProgress planning = startTask("Planning " + root.getName(), -1);
+        CompletableFuture<Void> batch = CompletableFuture.runAsync(() -> {
+            try (SpilledRenamePlan plan = SpilledRenamePlan.build(root.toPath(), filter, generator, extension,
+                    context, planning)) {
+                planning.finish();
+                this.logger.info("Renaming tree " + root + " : " + plan);
+                TaskProgress renaming = startTask("Renaming " + root.getName(), plan.size());
+                RenameSummary summary = new RenameSummary(MAX_REPORTED_NAMES);
+                boolean completed = false;
+                this.renameExecutor.beginBatch();
+                try {
+                    plan.forEachPlan(TREE_PLAN_SIZE, collisionMode, renaming, chunk -> {
+                        RenameReport report = this.renameExecutor.execute(chunk, renaming).join();
+                        logRenameReport(chunk, report);
+                        summary.add(chunk, report);
+                    });
+                    completed = true;
+                } finally {
+                    renaming.finish();
+                    this.renameExecutor.endBatch(completed);
+                }
+                long nbNotRenamed = plan.size() - summary.count(RenameOutcome.SUCCEEDED)
+                        - summary.count(RenameOutcome.SKIPPED) - summary.count(RenameOutcome.FAILED);
+                this.logger.info("Tree renamed : " + root + " " + summary);
+                showRenameSummary(summary, renaming.isCancelled(), nbNotRenamed);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        this.runningBatch = batch;
+        batch.whenComplete((v, error) -> {
+            planning.finish();
+            if (error != null && planning.isCancelled()) {
+                this.logger.info("Tree rename cancelled before any file was renamed : " + root);
+            } else if (error != null) {
+                this.logger.error("Failed to rename tree : " + root, error);
+                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this.view, "Cannot rename tree : "
+                        + root + "\n\n" + error.getCause(), "Rename Tree", JOptionPane.ERROR_MESSAGE));
+            }
+            SwingUtilities.invokeLater(() -> this.model.notifyChanged(this.model.getCurrentFileSelection()));
+        });
+    }
 
-        if (cpt == 0 && (pattern.contains("{") || pattern.contains("}"))) {
-            throw new MalformedTagException("Open bracket detected : " + pattern);
+    public void revertLastBatch() {
+        runJournalBatch("Revert", true);
+    }
+
+    private void checkInterruptedBatch() {
+        CompletableFuture.supplyAsync(this::readJournal).thenAccept(batch -> {
+            if (batch == null || !batch.isInterrupted()) {
+                return;
+            }
+            this.logger.warn("Interrupted rename batch found in journal : " + batch);
+            SwingUtilities.invokeLater(() -> {
+                String[] options = {"Resume", "Revert", "Ignore"};
+                int choice = JOptionPane.showOptionDialog(this.view, "The last rename batch was interrupted after "
+                                + batch.getNbMoves() + " moves out of " + batch.size() + " files.\n\n"
+                                + "Do you want to finish it or to revert it ?", "Interrupted Rename",
+                        JOptionPane.DEFAULT_OPTION, JOptionPane.WARNING_MESSAGE, null, options, options[0]);
+                if (choice == 0) {
+                    runJournalBatch("Resume", false);
+                } else if (choice == 1) {
+                    runJournalBatch("Revert", true);
+                }
+            });
+        });
+    }
+
+    /*
+     * Resumes or reverts the last batch of the journal in bounded memory : its plans are read back one at a time and
+     * applied as a single new batch, the way a tree is renamed. Moves read from the journal reuse the FileInfo of the
+     * file selection when there is one.
+     */
+    private void runJournalBatch(final String description, final boolean revert) {
+        if (!this.runningBatch.isDone()) {
+            this.logger.warn(description + " ignored because another batch is running");
+            return;
         }
+        HashMap<File, FileInfo> files = new HashMap<>();
+        for (FileInfo file : this.model.getFileSelection()) {
+            files.put(file.getFile(), file);
+        }
+        TaskProgress reading = startTask("Reading journal", -1);
+        CompletableFuture<Void> batch = CompletableFuture.runAsync(() -> {
+            Path copy = null;
+            try {
+                JournalBatch journalBatch = RenameJournal.readLastBatch(this.journal.getPath());
+                if (journalBatch.isEmpty()) {
+                    this.logger.info("No rename batch in the journal : " + description);
+                    return;
+                }
+                copy = Files.createTempFile("filerenamer-", ".journal");
+                journalBatch = journalBatch.copyTo(copy);
+                reading.checkCancelled();
+                reading.finish();
+                this.logger.info(description + " of the last batch : " + journalBatch);
+                TaskProgress progress = startTask(description, journalBatch.size());
+                RenameSummary summary = new RenameSummary(MAX_REPORTED_NAMES);
+                Consumer<List<File[]>> consumer = moves -> {
+                    RenamePlan plan = createJournalPlan(description, moves, files);
+                    RenameReport report = this.renameExecutor.execute(plan, progress).join();
+                    logRenameReport(plan, report);
+                    summary.add(plan, report);
+                };
+                boolean completed = false;
+                this.renameExecutor.beginBatch();
+                try {
+                    if (revert) {
+                        journalBatch.forEachRevertMoves(progress, consumer);
+                    } else {
+                        journalBatch.forEachPendingMoves(progress, consumer);
+                    }
+                    completed = true;
+                } finally {
+                    progress.finish();
+                    this.renameExecutor.endBatch(completed);
+                }
+                this.logger.info(description + " done : " + summary);
+                showRenameSummary(summary, progress.isCancelled(), summary.count(RenameOutcome.PENDING));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                deleteCopy(copy);
+            }
+        });
+        this.runningBatch = batch;
+        batch.whenComplete((v, error) -> {
+            reading.finish();
+            if (error != null && reading.isCancelled()) {
+                this.logger.info(description + " cancelled before any file was renamed");
+            } else if (error != null) {
+                this.logger.error("Failed to " + description.toLowerCase() + " the last batch", error);
+                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this.view, "Cannot "
+                        + description.toLowerCase() + " the last batch\n\n" + error.getCause(), description,
+                        JOptionPane.ERROR_MESSAGE));
+            }
+            SwingUtilities.invokeLater(() -> this.model.notifyChanged(this.model.getCurrentFileSelection()));
+        });
+    }
 
-        ArrayList<FileInfo> currentSelection = this.model.getCurrentFileSelection();
-        cpt = 0;
-        for (FileInfo file : currentSelection) {
-            String filename = pattern;
-            // Construction du pattern
-            for (Tag tag : tags) {
-                filename = filename.replace(tag.toTagString(), computeTag(tag, file));
+    private void deleteCopy(final Path copy) {
+        if (copy != null) {
+            try {
+                Files.deleteIfExists(copy);
+            } catch (IOException e) {
+                this.logger.warn("Cannot delete journal copy : " + copy, e);
             }
-            if (preview) {
-                file.setNewName(filename + "." + file.getExtension());
+        }
+    }
+
+    private JournalBatch readJournal() {
+        try {
+            return RenameJournal.readLastBatch(this.journal.getPath());
+        } catch (IOException e) {
+            this.logger.error("Cannot read rename journal : " + this.journal.getPath(), e);
+            return null;
+        }
+    }
+
+    private static RenamePlan createJournalPlan(final String description, final List<File[]> moves,
+                                                final HashMap<File, FileInfo> files) {
+        RenameOperation[] operations = new RenameOperation[moves.size()];
+        for (int i = 0; i < operations.length; i++) {
+            File[] move = moves.get(i);
+            FileInfo file = files.get(move[0]);
+            operations[i] = new RenameOperation(file != null ? file : new FileInfo(move[0]), move[1]);
+        }
+        return new RenamePlan(description, List.of(), operations);
+    }
+
+    // May be called from any thread, the caller keeps the returned future as the running batch
+    private CompletableFuture<?> startBatch(final String name, final RenamePlan plan) {
+        this.logger.debug("Applying rename plan : " + plan);
+        TaskProgress progress = startTask(name, plan.size());
+        return this.renameExecutor.execute(plan, progress).whenComplete((report, error) -> {
+            progress.finish();
+            if (error != null) {
+                this.logger.error("Failed to apply rename plan : " + plan, error);
             } else {
-                file.renameTo(filename + "." + file.getExtension());
+                if (progress.isCancelled()) {
+                    this.logger.warn("Rename plan cancelled, " + report.count(RenameOutcome.PENDING)
+                            + " files not renamed : " + plan);
+                }
+                logRenameReport(plan, report);
+                RenameSummary summary = new RenameSummary(MAX_REPORTED_NAMES);
+                summary.add(plan, report);
+                showRenameSummary(summary, progress.isCancelled(), summary.count(RenameOutcome.PENDING));
+            }
+            SwingUtilities.invokeLater(() -> this.model.notifyChanged(this.model.getCurrentFileSelection()));
+        });
+    }
+
+    private TaskProgress startTask(final String name, final long total) {
+        TaskProgress progress = new TaskProgress(name, total);
+        SwingUtilities.invokeLater(() -> this.view.trackProgress(progress));
+        return progress;
+    }
+
+    private void logRenameReport(final RenamePlan plan, final RenameReport report) {
+        for (int i = 0; i < report.size(); i++) {
+            if (report.getOutcome(i) == RenameOutcome.FAILED) {
+                RenameOperation operation = plan.getOperations().get(i);
+                this.logger.warn("Cannot rename " + operation.getSource() + " to " + operation.getTarget() + " : "
+                        + report.getReason(i));
             }
-            cpt++;
         }
-        this.model.notifyChanged(this.model.getCurrentFileSelection());
+        this.logger.info("Rename plan applied : " + report);
     }
 
-    public void resetFilters() {
-        this.model.setCurrentFileSelection(this.model.getFileSelection());
+    private void showRenameSummary(final RenameSummary summary, final boolean cancelled, final long nbNotRenamed) {
+        long nbFailed = summary.count(RenameOutcome.FAILED);
+        StringBuilder msg = new StringBuilder();
+        if (cancelled) {
+            msg.append("The batch was cancelled, ").append(nbNotRenamed).append(" files were not renamed.\n\n");
+        }
+        msg.append("Renamed : ").append(summary.count(RenameOutcome.SUCCEEDED)).append('\n');
+        msg.append("Skipped : ").append(summary.count(RenameOutcome.SKIPPED)).append('\n');
+        msg.append("Failed : ").append(nbFailed);
+        for (Map.Entry<OutcomeReason, Long> entry : summary.getFailures().entrySet()) {
+            msg.append("\n    ").append(entry.getKey()).append(" : ").append(entry.getValue());
+        }
+        if (summary.getNbRetries() > 0) {
+            msg.append("\n\n").append(summary.getNbRetries()).append(" busy files were retried.");
+        }
+        List<String> failures = summary.getFirstFailures();
+        for (int i = 0; i < failures.size(); i++) {
+            msg.append(i == 0 ? "\n\nFailed files :\n" : "\n").append(failures.get(i));
+        }
+        if (nbFailed > failures.size()) {
+            msg.append("\n...");
+        }
+        int type = nbFailed > 0 || cancelled ? JOptionPane.WARNING_MESSAGE : JOptionPane.INFORMATION_MESSAGE;
+        SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this.view, msg.toString(), "Rename Summary",
+                type));
+    }
+
+    // An empty pattern with a new extension only changes the extensions, no template is evaluated
+    private static NameGenerator compilePattern(final String pattern, final String sourceRegex,
+                                                final String extension) throws MalformedTagException {
+        if (extension != null && pattern.isEmpty() && sourceRegex.isEmpty()) {
+            return null;
+        }
+        return RenameTemplate.compile(pattern, sourceRegex);
     }
 
-    private static String computeTag(final Tag tag, final FileInfo file) {
-        Calendar cal = Calendar.getInstance();
-        SimpleDateFormat date = new SimpleDateFormat("yyyy-MM-dd");
-        SimpleDateFormat year = new SimpleDateFormat("yyyy");
-        SimpleDateFormat yearSmall = new SimpleDateFormat("yy");
-        SimpleDateFormat month = new SimpleDateFormat("MM");
-        SimpleDateFormat day = new SimpleDateFormat("dd");
-        switch (tag) {
-            case DATE:
-                return date.format(cal.getTime());
-            case YEAR:
-                return year.format(cal.getTime());
-            case YEAR_SMALL:
-                return yearSmall.format(cal.getTime());
-            case MONTH:
-                return month.format(cal.getTime());
-            case DAY:
-                return day.format(cal.getTime());
-            case DIR_NAME:
-                return file.getFile().getParentFile().getName();
-            case FILE_NAME:
-            case IMPORTED_NAME:
-                return FilenameUtils.getBaseName(file.getDisplayName());
-            default:
-                throw new IllegalArgumentException("Illegal tag : " + tag);
+    // ".tar.gz" -> "tar.gz", an empty extension removes the extension of the files
+    private static String toExtension(final String extension) throws MalformedTagException {
+        if (extension == null) {
+            return null;
+        }
+        String newExtension = extension.trim();
+        int start = 0;
+        while (start < newExtension.length() && newExtension.charAt(start) == '.') {
+            start++;
         }
+        newExtension = newExtension.substring(start);
+        if (newExtension.indexOf('/') >= 0 || newExtension.indexOf('\\') >= 0) {
+            throw new MalformedTagException("Invalid extension : " + extension);
+        }
+        return newExtension;
+    }
+
+    public void resetFilters() {
+        this.model.setCurrentFileSelection(this.model.getFileSelection());
     }
 
     public ApplicationView getView() {
@@ -25,6 +25,7 @@ package org.jls.filerenamer;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.jls.filerenamer.rename.RenamePlan;
 import org.jls.filerenamer.util.FileInfo;
 import org.jls.filerenamer.util.ResourceManager;
 import org.jls.toolbox.gui.AbstractModel;
@@ -34,11 +35,15 @@ import java.util.ArrayList;
 
 public class ApplicationModel extends AbstractModel {
 
+    // Argument of the notifications which only change the new names of the files, not the selection
+    public static final String NEW_NAMES_CHANGED = "newNamesChanged";
+
     private final Logger logger;
     private final String appName;
     private final FileSystemView fileSystemView;
     private ArrayList<FileInfo> fileSelection;
     private ArrayList<FileInfo> currentFileSelection;
+    private RenamePlan renamePlan;
 
     public ApplicationModel() {
         logger = LogManager.getLogger();
@@ -47,6 +52,7 @@ public class ApplicationModel extends AbstractModel {
         fileSystemView = FileSystemView.getFileSystemView();
         fileSelection = new ArrayList<>();
         currentFileSelection = new ArrayList<>();
+        renamePlan = null;
     }
 
     public String getAppName() {
@@ -74,6 +80,21 @@ public class ApplicationModel extends AbstractModel {
     public void setCurrentFileSelection(final ArrayList<FileInfo> fileSelection) {
         logger.debug("Updating current file selection");
         currentFileSelection = fileSelection;
+        renamePlan = null;
         notifyChanged(fileSelection);
     }
+
+    public RenamePlan getRenamePlan() {
+        return renamePlan;
+    }
+
+    public void setRenamePlan(final RenamePlan renamePlan) {
+        logger.debug("Updating rename plan : " + renamePlan);
+        this.renamePlan = renamePlan;
+        notifyNewNamesChanged();
+    }
+
+    public void notifyNewNamesChanged() {
+        notifyChanged(NEW_NAMES_CHANGED);
+    }
 }
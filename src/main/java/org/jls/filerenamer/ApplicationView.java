@@ -27,9 +27,12 @@ import net.miginfocom.swing.MigLayout;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jls.filerenamer.gui.*;
+import org.jls.filerenamer.util.FileFilter;
 import org.jls.filerenamer.util.FileInfo;
+import org.jls.filerenamer.util.InvalidFilterException;
 import org.jls.filerenamer.util.ResourceManager;
 import org.jls.filerenamer.util.TableColumnAdjuster;
+import org.jls.filerenamer.util.TaskProgress;
 
 import javax.swing.*;
 import javax.swing.event.TreeSelectionEvent;
@@ -51,6 +54,7 @@ public class ApplicationView extends JFrame implements Observer, TreeSelectionLi
     private FileTable fileTable;
     private FileFiltersPanel fileFiltersPanel;
     private RenamingPanel renamingPanel;
+    private ProgressPanel progressPanel;
     private TableColumnAdjuster tableAdjuster;
 
     public ApplicationView(final ApplicationModel model, final ApplicationController controller) {
@@ -78,6 +82,7 @@ public class ApplicationView extends JFrame implements Observer, TreeSelectionLi
         this.fileTable.getTableModel().setShowOnlyFiles(true);
         this.fileFiltersPanel = new FileFiltersPanel(this.controller);
         this.renamingPanel = new RenamingPanel(this.controller);
+        this.progressPanel = new ProgressPanel();
         this.tableAdjuster = new TableColumnAdjuster(this.fileTable);
         this.tableAdjuster.setColumnHeaderIncluded(true);
         this.tableAdjuster.setColumnDataIncluded(true);
@@ -101,16 +106,31 @@ public class ApplicationView extends JFrame implements Observer, TreeSelectionLi
         // Main Panel
         setLayout(new MigLayout("fill"));
         add(splitPane, "grow, pushy, wrap");
-        add(tabbedPane, "grow");
+        add(tabbedPane, "grow, wrap");
+        add(this.progressPanel, "growx");
     }
 
     private void addListeners() {
         this.fileBrowser.getJTree().addTreeSelectionListener(this);
     }
 
+    public ArrayList<FileInfo> getFilesInDisplayOrder() {
+        return this.fileTable.getFilesInDisplayOrder();
+    }
+
+    public FileFilter getFileFilter() throws InvalidFilterException {
+        return this.fileFiltersPanel.getFileFilter();
+    }
+
+    public void trackProgress(final TaskProgress progress) {
+        this.progressPanel.track(progress);
+    }
+
     @Override
     public void update(final Observable o, final Object arg) {
-        if (o instanceof ApplicationModel) {
+        if (o instanceof ApplicationModel && ApplicationModel.NEW_NAMES_CHANGED.equals(arg)) {
+            this.fileTable.getTableModel().fireNewNamesChanged();
+        } else if (o instanceof ApplicationModel) {
             this.logger.debug("Updating current file selection");
             this.fileTable.getTableModel().updateTableData(this.model.getCurrentFileSelection());
             this.tableAdjuster.adjustColumns();
@@ -129,16 +149,7 @@ public class ApplicationView extends JFrame implements Observer, TreeSelectionLi
         File nodeFile = (File) node.getUserObject();
 
         if (nodeFile.isDirectory()) {
-            updateFileSelection(nodeFile);
-        }
-    }
-
-    private void updateFileSelection(final File directory) {
-        File[] files = this.model.getFileSystemView().getFiles(directory, true);
-        ArrayList<FileInfo> fileInfoList = new ArrayList<>();
-        for (File file : files) {
-            fileInfoList.add(new FileInfo(file));
+            this.controller.listDirectory(nodeFile);
         }
-        this.model.setFileSelection(fileInfoList);
     }
 }
@@ -25,6 +25,7 @@ package org.jls.filerenamer.gui;
 
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.regex.PatternSyntaxException;
 
 import javax.swing.JButton;
 import javax.swing.JLabel;
@@ -120,6 +121,16 @@ public class FileFiltersPanel extends JPanel implements ActionListener {
         this.btnReset.addActionListener(this);
     }
 
+    // Filter described by the fields of the panel, null if all the fields are empty
+    public FileFilter getFileFilter() throws InvalidFilterException {
+        String startsWith = this.tfStartsWith.getText();
+        String endsWith = this.tfEndsWith.getText();
+        String contains = this.tfContains.getText();
+        String extensionFilter = this.tfFileExtension.getText().trim().replaceAll(" ", "");
+        String regex = this.tfRegex.getText();
+        return computeFileFilter(startsWith, endsWith, contains, extensionFilter, regex);
+    }
+
     private static FileFilter computeFileFilter(final String startsWith, final String endsWith, final String contains,
                                                 final String extensionFilter, final String regex) throws InvalidFilterException {
         String starting = startsWith.isEmpty() ? null : startsWith;
@@ -137,6 +148,9 @@ public class FileFiltersPanel extends JPanel implements ActionListener {
                 return null;
             }
             return new FileFilter(starting, ending, containing, fileNameFilter, matching);
+        } catch (PatternSyntaxException e) {
+            throw new InvalidFilterException(ResourceManager.getInstance().getString(
+                    "fileFiltersPanel.error.invalidRegexFilter") + "\n\n" + e.getMessage(), e);
         } catch (Exception e) {
             throw new InvalidFilterException(
                     ResourceManager.getInstance().getString("fileFiltersPanel.error.invalidExtensionFileFilter"), e);
@@ -149,14 +163,8 @@ public class FileFiltersPanel extends JPanel implements ActionListener {
             JButton btn = (JButton) e.getSource();
 
             if (this.btnApplyFilter.equals(btn)) {
-                String startsWith = this.tfStartsWith.getText();
-                String endsWith = this.tfEndsWith.getText();
-                String contains = this.tfContains.getText();
-                String extensionFilter = this.tfFileExtension.getText().trim().replaceAll(" ", "");
-                String regex = this.tfRegex.getText();
                 try {
-                    FileFilter filter = computeFileFilter(startsWith, endsWith, contains, extensionFilter, regex);
-                    this.controller.applyFileFilter(filter);
+                    this.controller.applyFileFilter(getFileFilter());
                 } catch (InvalidFilterException e1) {
                     this.logger.error("At least one filter parameter is invalid", e1);
                     pop(this.props.getString("fileFiltersPanel.error.invalidFilterParam.header"),
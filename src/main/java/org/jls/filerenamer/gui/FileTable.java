@@ -23,10 +23,14 @@
  */
 package org.jls.filerenamer.gui;
 
+import java.util.ArrayList;
+
 import javax.swing.JTable;
 import javax.swing.ListSelectionModel;
 import javax.swing.event.ListSelectionEvent;
 
+import org.jls.filerenamer.util.FileInfo;
+
 public class FileTable extends JTable {
 
     private static final long serialVersionUID = 5790755274612372085L;
@@ -51,6 +55,14 @@ public class FileTable extends JTable {
         this.tableModel.fireTableDataChanged();
     }
 
+    public ArrayList<FileInfo> getFilesInDisplayOrder() {
+        ArrayList<FileInfo> files = new ArrayList<>(getRowCount());
+        for (int row = 0; row < getRowCount(); row++) {
+            files.add(this.tableModel.getFileInfo(convertRowIndexToModel(row)));
+        }
+        return files;
+    }
+
     @Override
     public void valueChanged(final ListSelectionEvent selectionEvent) {
         super.valueChanged(selectionEvent);
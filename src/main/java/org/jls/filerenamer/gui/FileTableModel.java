@@ -26,14 +26,15 @@ package org.jls.filerenamer.gui;
 import java.util.ArrayList;
 
 import javax.swing.Icon;
+import javax.swing.event.TableModelEvent;
 import javax.swing.table.AbstractTableModel;
 
-import org.apache.commons.io.FilenameUtils;
 import org.jls.filerenamer.util.FileInfo;
 
 public class FileTableModel extends AbstractTableModel {
 
     private static final long serialVersionUID = 2054550595249194702L;
+    private static final int FINAL_NAME_COLUMN = 3;
 
     private final String[] columns = {"Icon", "Ext", "Name", "Final Name", "Path"};
     private final ArrayList<FileInfo> fileInfoList;
@@ -54,6 +55,14 @@ public class FileTableModel extends AbstractTableModel {
         fireTableDataChanged();
     }
 
+    // Only the Final Name column changes with a rename plan : its cells are repainted, the rows are neither rebuilt
+    // nor measured again
+    public void fireNewNamesChanged() {
+        if (getRowCount() > 0) {
+            fireTableChanged(new TableModelEvent(this, 0, getRowCount() - 1, FINAL_NAME_COLUMN));
+        }
+    }
+
     private void addFilesToTable(final ArrayList<FileInfo> files) {
         for (FileInfo file : files) {
             if (file.getFile().isDirectory() && !showOnlyFiles) {
@@ -64,6 +73,10 @@ public class FileTableModel extends AbstractTableModel {
         }
     }
 
+    public FileInfo getFileInfo(final int rowIndex) {
+        return fileInfoList.get(rowIndex);
+    }
+
     public void setShowOnlyDirectories(final boolean onlyDirectories) {
         showOnlyDirectories = onlyDirectories;
         showOnlyFiles = !onlyDirectories;
@@ -92,10 +105,10 @@ public class FileTableModel extends AbstractTableModel {
                 case 0:
                     return file.getIcon();
                 case 1:
-                    return FilenameUtils.getExtension(file.getFile().getName());
+                    return file.getExtension();
                 case 2:
                     return file.getDisplayName();
-                case 3:
+                case FINAL_NAME_COLUMN:
                     return file.getNewName();
                 case 4:
                     return file.getPath();
@@ -0,0 +1,172 @@
+/*
+ * MIT License
+ *
+ * Copyright 2020 Julien LE SAUCE
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jls.filerenamer.gui;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+
+import javax.swing.JButton;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.Timer;
+
+import org.jls.filerenamer.util.TaskProgress;
+
+import net.miginfocom.swing.MigLayout;
+
+/*
+ * Shows one row per running task, each with its own Cancel button : a listing or a preview started during a rename
+ * batch never hides the batch. The rows of finished tasks show their result until the next task starts.
+ */
+public class ProgressPanel extends JPanel implements ActionListener {
+
+    private static final long serialVersionUID = -6107369519233717562L;
+    private static final int REFRESH_DELAY = 250;
+
+    private final Timer timer;
+    private final ArrayList<TaskRow> rows;
+
+    public ProgressPanel() {
+        super();
+        this.timer = new Timer(REFRESH_DELAY, this);
+        this.rows = new ArrayList<>();
+        createGui();
+    }
+
+    private void createGui() {
+        setLayout(new MigLayout("insets 0 5 0 5, wrap 4", "[150][grow][250][]", "[]"));
+        // An idle row keeps the height of the panel while no task was started
+        addRow(new TaskRow(null));
+    }
+
+    // Displays the given task below the running ones, must be called from the EDT
+    public void track(final TaskProgress progress) {
+        for (TaskRow row : new ArrayList<>(this.rows)) {
+            if (row.progress == null || row.progress.isFinished()) {
+                removeRow(row);
+            }
+        }
+        addRow(new TaskRow(progress));
+        revalidate();
+        repaint();
+        this.timer.start();
+    }
+
+    private void addRow(final TaskRow row) {
+        this.rows.add(row);
+        add(row.lblTask, "");
+        add(row.progressBar, "growx");
+        add(row.lblStatus, "");
+        add(row.btnCancel, "");
+        row.refresh();
+    }
+
+    private void removeRow(final TaskRow row) {
+        this.rows.remove(row);
+        remove(row.lblTask);
+        remove(row.progressBar);
+        remove(row.lblStatus);
+        remove(row.btnCancel);
+    }
+
+    private static String formatDuration(final long seconds) {
+        if (seconds >= 3600) {
+            return String.format("%d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60);
+        }
+        return String.format("%d:%02d", seconds / 60, seconds % 60);
+    }
+
+    @Override
+    public void actionPerformed(final ActionEvent e) {
+        if (this.timer.equals(e.getSource())) {
+            boolean running = false;
+            for (TaskRow row : this.rows) {
+                row.refresh();
+                running |= row.progress != null && !row.progress.isFinished();
+            }
+            if (!running) {
+                this.timer.stop();
+            }
+        }
+    }
+
+    private static final class TaskRow implements ActionListener {
+
+        private final TaskProgress progress;
+        private final JLabel lblTask;
+        private final JProgressBar progressBar;
+        private final JLabel lblStatus;
+        private final JButton btnCancel;
+
+        private TaskRow(final TaskProgress progress) {
+            this.progress = progress;
+            this.lblTask = new JLabel(progress != null ? progress.getName() : " ");
+            this.progressBar = new JProgressBar();
+            this.progressBar.setStringPainted(true);
+            this.progressBar.setString("");
+            this.lblStatus = new JLabel(" ");
+            this.btnCancel = new JButton("Cancel");
+            this.btnCancel.setEnabled(progress != null);
+            this.btnCancel.addActionListener(this);
+        }
+
+        private void refresh() {
+            TaskProgress task = this.progress;
+            if (task == null) {
+                return;
+            }
+            long done = task.getDone();
+            long total = task.getTotal();
+            this.progressBar.setIndeterminate(total < 0 && !task.isFinished());
+            if (total > 0) {
+                this.progressBar.setMaximum(1000);
+                this.progressBar.setValue((int) (1000 * Math.min(done, total) / total));
+            } else {
+                this.progressBar.setValue(task.isFinished() ? this.progressBar.getMaximum() : 0);
+            }
+            this.progressBar.setString(total >= 0 ? String.format("%,d / %,d", done, total)
+                    : String.format("%,d", done));
+            if (task.isFinished()) {
+                this.btnCancel.setEnabled(false);
+                this.lblStatus.setText(String.format("%s in %s (%,.0f/s)", task.isCancelled() ? "Cancelled" : "Done",
+                        formatDuration((long) task.getElapsedSeconds()), task.getThroughput()));
+            } else if (task.isCancelled()) {
+                this.btnCancel.setEnabled(false);
+                this.lblStatus.setText("Cancelling...");
+            } else {
+                long remaining = task.getRemainingSeconds();
+                this.lblStatus.setText(String.format("%,.0f/s, ETA %s", task.getThroughput(),
+                        remaining >= 0 ? formatDuration(remaining) : "--:--"));
+            }
+        }
+
+        @Override
+        public void actionPerformed(final ActionEvent e) {
+            this.progress.cancel();
+            refresh();
+        }
+    }
+}
@@ -26,11 +26,17 @@ package org.jls.filerenamer.gui;
 import java.awt.Dimension;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.File;
+import java.util.Collections;
 
 import javax.swing.JButton;
+import javax.swing.DefaultListModel;
 import javax.swing.JCheckBox;
+import javax.swing.JComboBox;
 import javax.swing.JDialog;
+import javax.swing.JFileChooser;
 import javax.swing.JLabel;
+import javax.swing.JList;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
@@ -38,10 +44,14 @@ import javax.swing.JTable;
 import javax.swing.JTextField;
 import javax.swing.ListSelectionModel;
 import javax.swing.SwingUtilities;
+import javax.swing.filechooser.FileNameExtensionFilter;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jls.filerenamer.ApplicationController;
+import org.jls.filerenamer.rename.CollisionMode;
+import org.jls.filerenamer.rename.RenameRule;
+import org.jls.filerenamer.util.InvalidFilterException;
 import org.jls.filerenamer.util.MalformedTagException;
 import org.jls.filerenamer.util.Tag;
 
@@ -50,19 +60,42 @@ import net.miginfocom.swing.MigLayout;
 public class RenamingPanel extends JPanel implements ActionListener {
 
     private static final long serialVersionUID = -6283254928957349454L;
+    private static final String PATTERN_MODE = "Pattern";
+    private static final String REPLACE_MODE = "Find & Replace";
+    private static final String RULES_MODE = "Rules";
 
     private final ApplicationController controller;
     private final Logger logger;
 
+    private JLabel lblMode;
+    private JComboBox<String> boxMode;
     private JLabel lblPattern;
     private JTextField tfPattern;
+    private JLabel lblSourceRegex;
+    private JTextField tfSourceRegex;
+    private JLabel lblFind;
+    private JTextField tfFind;
+    private JCheckBox cbIgnoreCase;
+    private JLabel lblReplace;
+    private JTextField tfReplace;
+    private JCheckBox cbReplaceAll;
+    private JLabel lblRules;
+    private DefaultListModel<RenameRule> rules;
+    private JList<RenameRule> listRules;
+    private JButton btnAddRule;
+    private JButton btnRemoveRule;
     private JTextField tfExtension;
     private JCheckBox cbChangeExtension;
+    private JLabel lblCollisionMode;
+    private JComboBox<CollisionMode> boxCollisionMode;
     private JButton btnAddTag;
     private JButton btnAddVar;
+    private JButton btnImportNames;
     private JButton btnPreview;
     private JButton btnApply;
     private JButton btnClear;
+    private JButton btnExport;
+    private JButton btnRenameTree;
     private JButton btnRevert;
     private JTable tagTable;
 
@@ -73,6 +106,7 @@ public class RenamingPanel extends JPanel implements ActionListener {
         createComponents();
         createGui();
         addListeners();
+        updateMode();
     }
 
     public void pop(final String title, final String msg, final int type) {
@@ -80,15 +114,44 @@ public class RenamingPanel extends JPanel implements ActionListener {
     }
 
     private void createComponents() {
+        this.lblMode = new JLabel("Mode :");
+        this.boxMode = new JComboBox<>(new String[] {PATTERN_MODE, REPLACE_MODE, RULES_MODE});
         this.lblPattern = new JLabel("Pattern :");
         this.tfPattern = new JTextField();
+        this.lblSourceRegex = new JLabel("Source Regex :");
+        this.tfSourceRegex = new JTextField();
+        this.tfSourceRegex.setToolTipText("Regex matched against the file names, groups are inserted with {g1}, "
+                + "{g2}...");
+        this.lblFind = new JLabel("Find :");
+        this.tfFind = new JTextField();
+        this.cbIgnoreCase = new JCheckBox("Ignore Case");
+        this.lblReplace = new JLabel("Replace :");
+        this.tfReplace = new JTextField();
+        this.tfReplace.setToolTipText("Groups of the find regex are inserted with $1, $2...");
+        this.cbReplaceAll = new JCheckBox("All Occurrences", true);
+        this.lblRules = new JLabel("Rules :");
+        this.rules = new DefaultListModel<>();
+        this.listRules = new JList<>(this.rules);
+        this.listRules.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        this.listRules.setToolTipText("The first rule whose filter accepts a file gives its name");
+        this.btnAddRule = new JButton("Add Rule");
+        this.btnAddRule.setToolTipText("Adds the pattern with the filter of the File Filters tab");
+        this.btnRemoveRule = new JButton("Remove Rule");
         this.tfExtension = new JTextField();
         this.cbChangeExtension = new JCheckBox("Change Extension");
+        this.lblCollisionMode = new JLabel("On Conflict :");
+        this.boxCollisionMode = new JComboBox<>(CollisionMode.values());
         this.btnAddTag = new JButton("Add Tag");
         this.btnAddVar = new JButton("Add Var");
+        this.btnImportNames = new JButton("Import Names...");
+        this.btnImportNames.setToolTipText("Loads the old name -> new name CSV or TSV file used by {imported_name}");
         this.btnPreview = new JButton("Preview");
         this.btnApply = new JButton("Apply");
         this.btnClear = new JButton("Clear");
+        this.btnExport = new JButton("Export...");
+        this.btnExport.setToolTipText("Writes the old and new paths of the preview to a CSV or NDJSON file");
+        this.btnRenameTree = new JButton("Rename Tree...");
+        this.btnRenameTree.setToolTipText("Renames every file under a directory without preview, in bounded memory");
         this.btnRevert = new JButton("Revert");
 
         String[] col = {"Tag"};
@@ -112,15 +175,37 @@ public class RenamingPanel extends JPanel implements ActionListener {
         JScrollPane tagTableScroll = new JScrollPane(this.tagTable);
         tagTableScroll.setPreferredSize(new Dimension(150, 150));
 
-        JPanel leftPanel = new JPanel(new MigLayout("", "[][300][][50]", "[][]20[]"));
+        JScrollPane rulesScroll = new JScrollPane(this.listRules);
+        rulesScroll.setPreferredSize(new Dimension(300, 60));
+
+        JPanel leftPanel = new JPanel(new MigLayout("", "[][300][][50]", "[][][][][][][]20[]"));
+        leftPanel.add(this.lblMode, "");
+        leftPanel.add(this.boxMode, "wrap");
         leftPanel.add(this.lblPattern, "");
         leftPanel.add(this.tfPattern, "grow");
         leftPanel.add(this.cbChangeExtension, "");
         leftPanel.add(this.tfExtension, "grow, wrap");
+        leftPanel.add(this.lblSourceRegex, "");
+        leftPanel.add(this.tfSourceRegex, "grow, wrap");
+        leftPanel.add(this.lblFind, "");
+        leftPanel.add(this.tfFind, "grow");
+        leftPanel.add(this.cbIgnoreCase, "wrap");
+        leftPanel.add(this.lblReplace, "");
+        leftPanel.add(this.tfReplace, "grow");
+        leftPanel.add(this.cbReplaceAll, "wrap");
+        leftPanel.add(this.lblRules, "top");
+        leftPanel.add(rulesScroll, "grow");
+        leftPanel.add(this.btnAddRule, "split 2, flowy, top, growx");
+        leftPanel.add(this.btnRemoveRule, "growx, wrap");
+        leftPanel.add(this.lblCollisionMode, "");
+        leftPanel.add(this.boxCollisionMode, "wrap");
         leftPanel.add(this.btnAddTag, "split, span, right");
-        leftPanel.add(this.btnAddVar, "wrap");
-        leftPanel.add(this.btnPreview, "split 4, span, center");
+        leftPanel.add(this.btnAddVar, "");
+        leftPanel.add(this.btnImportNames, "wrap");
+        leftPanel.add(this.btnPreview, "split 6, span, center");
         leftPanel.add(this.btnApply, "");
+        leftPanel.add(this.btnExport, "");
+        leftPanel.add(this.btnRenameTree, "");
         leftPanel.add(this.btnClear, "");
         leftPanel.add(this.btnRevert, "");
 
@@ -129,6 +214,71 @@ public class RenamingPanel extends JPanel implements ActionListener {
         add(tagTableScroll, "spany, grow");
     }
 
+    private boolean isReplaceMode() {
+        return REPLACE_MODE.equals(this.boxMode.getSelectedItem());
+    }
+
+    private boolean isRulesMode() {
+        return RULES_MODE.equals(this.boxMode.getSelectedItem());
+    }
+
+    private void updateMode() {
+        boolean replace = isReplaceMode();
+        boolean rulesMode = isRulesMode();
+        this.tfExtension.setEnabled(this.cbChangeExtension.isSelected());
+        this.tfPattern.setEnabled(!replace);
+        this.tfSourceRegex.setEnabled(!replace);
+        this.btnAddTag.setEnabled(!replace);
+        this.btnAddVar.setEnabled(!replace);
+        this.btnImportNames.setEnabled(!replace);
+        this.tfFind.setEnabled(replace);
+        this.cbIgnoreCase.setEnabled(replace);
+        this.tfReplace.setEnabled(replace);
+        this.cbReplaceAll.setEnabled(replace);
+        this.listRules.setEnabled(rulesMode);
+        this.btnAddRule.setEnabled(rulesMode);
+        this.btnRemoveRule.setEnabled(rulesMode);
+    }
+
+    private boolean isPreviewUpToDate() {
+        if (isRulesMode()) {
+            return this.controller.isRulesPreviewUpToDate(Collections.list(this.rules.elements()), getExtension());
+        } else if (isReplaceMode()) {
+            return this.controller.isReplacementUpToDate(this.tfFind.getText(), this.tfReplace.getText(),
+                    this.cbIgnoreCase.isSelected(), this.cbReplaceAll.isSelected(), getExtension());
+        }
+        return this.controller.isPreviewUpToDate(this.tfPattern.getText(), this.tfSourceRegex.getText(),
+                getExtension());
+    }
+
+    private void renameTree(final File root) {
+        CollisionMode collisionMode = (CollisionMode) this.boxCollisionMode.getSelectedItem();
+        try {
+            if (isRulesMode()) {
+                this.controller.renameTreeWithRules(root, Collections.list(this.rules.elements()), getExtension(),
+                        collisionMode);
+            } else if (isReplaceMode()) {
+                this.controller.renameTreeWithReplacement(root, this.controller.getView().getFileFilter(),
+                        this.tfFind.getText(), this.tfReplace.getText(), this.cbIgnoreCase.isSelected(),
+                        this.cbReplaceAll.isSelected(), getExtension(), collisionMode);
+            } else {
+                this.controller.renameTree(root, this.controller.getView().getFileFilter(), this.tfPattern.getText(),
+                        this.tfSourceRegex.getText(), getExtension(), collisionMode);
+            }
+        } catch (InvalidFilterException e) {
+            this.logger.error("Invalid tree filter", e);
+            pop("Rename Tree Error", "Invalid filter\n\n" + e.getMessage(), JOptionPane.ERROR_MESSAGE);
+        } catch (MalformedTagException e) {
+            this.logger.error("Invalid tree rename (" + e.getMessage() + ")");
+            pop("Rename Tree Error", "Invalid pattern\n\n" + e.getMessage(), JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    // Null when the extensions are kept
+    private String getExtension() {
+        return this.cbChangeExtension.isSelected() ? this.tfExtension.getText() : null;
+    }
+
     private Tag getSelectedTag() {
         int row = this.tagTable.getSelectedRow();
         if (row >= 0) {
@@ -141,21 +291,32 @@ public class RenamingPanel extends JPanel implements ActionListener {
     public void insertVariable(final String type, final Object value, final int nbDigits) {
         if ("Integer".equals(type)) {
             this.tfPattern.setText(this.tfPattern.getText() + "{inc=%" + nbDigits + "d," + value + "}");
+        } else if ("Letter".equals(type)) {
+            this.tfPattern.setText(this.tfPattern.getText() + "{let=%" + nbDigits + "c," + value + "}");
         }
     }
 
     private void addListeners() {
+        this.boxMode.addActionListener(this);
+        this.cbChangeExtension.addActionListener(this);
         this.btnAddTag.addActionListener(this);
         this.btnAddVar.addActionListener(this);
+        this.btnImportNames.addActionListener(this);
         this.btnPreview.addActionListener(this);
         this.btnApply.addActionListener(this);
         this.btnClear.addActionListener(this);
+        this.btnExport.addActionListener(this);
+        this.btnRenameTree.addActionListener(this);
         this.btnRevert.addActionListener(this);
+        this.btnAddRule.addActionListener(this);
+        this.btnRemoveRule.addActionListener(this);
     }
 
     @Override
     public void actionPerformed(final ActionEvent e) {
-        if (e.getSource() instanceof JButton) {
+        if (this.boxMode.equals(e.getSource()) || this.cbChangeExtension.equals(e.getSource())) {
+            updateMode();
+        } else if (e.getSource() instanceof JButton) {
             JButton btn = (JButton) e.getSource();
 
             if (this.btnAddTag.equals(btn)) {
@@ -182,11 +343,26 @@ public class RenamingPanel extends JPanel implements ActionListener {
                 if (dialog.getDialogReturnOption() == AddVariableDialog.APPROVE_OPTION) {
                     insertVariable(dialog.getVariableType(), dialog.getVariableInitialValue(), dialog.getVariableNbOfDigits());
                 }
+            } else if (this.btnImportNames.equals(btn)) {
+                JFileChooser chooser = new JFileChooser();
+                chooser.setFileFilter(new FileNameExtensionFilter("CSV or TSV file", "csv", "tsv", "txt"));
+                if (chooser.showOpenDialog(this.controller.getView()) == JFileChooser.APPROVE_OPTION) {
+                    this.controller.loadNameMapping(chooser.getSelectedFile());
+                }
             } else if (this.btnClear.equals(btn)) {
-                this.tfPattern.setText("");
-            } else if (this.btnPreview.equals(btn)) {
+                if (isReplaceMode()) {
+                    this.tfFind.setText("");
+                    this.tfReplace.setText("");
+                } else {
+                    this.tfPattern.setText("");
+                }
+            } else if (this.btnAddRule.equals(btn)) {
                 try {
-                    this.controller.renameCurrentSelection(this.tfPattern.getText(), true);
+                    this.rules.addElement(this.controller.createRenameRule(this.controller.getView().getFileFilter(),
+                            this.tfPattern.getText(), this.tfSourceRegex.getText()));
+                } catch (InvalidFilterException e1) {
+                    this.logger.error("Invalid rule filter", e1);
+                    pop("Rule Error", "Invalid filter\n\n" + e1.getMessage(), JOptionPane.ERROR_MESSAGE);
                 } catch (MalformedTagException e1) {
                     this.logger.error(
                             "Invalid pattern string : " + this.tfPattern.getText() + " (" + e1.getMessage() + ")");
@@ -194,10 +370,38 @@ public class RenamingPanel extends JPanel implements ActionListener {
                             "Invalid pattern string : " + this.tfPattern.getText() + "\n\n" + e1.getMessage(),
                             JOptionPane.ERROR_MESSAGE);
                 }
-            } else if (this.btnApply.equals(btn)) {
+            } else if (this.btnRemoveRule.equals(btn)) {
+                int index = this.listRules.getSelectedIndex();
+                if (index >= 0) {
+                    this.rules.remove(index);
+                }
+            } else if (this.btnPreview.equals(btn) && isRulesMode()) {
+                if (this.rules.isEmpty()) {
+                    pop("Rules", "Add at least one rule before previewing.", JOptionPane.WARNING_MESSAGE);
+                    return;
+                }
+                try {
+                    this.controller.previewRules(Collections.list(this.rules.elements()), getExtension(),
+                            (CollisionMode) this.boxCollisionMode.getSelectedItem());
+                } catch (MalformedTagException e1) {
+                    this.logger.error("Invalid rules (" + e1.getMessage() + ")");
+                    pop("Rules Error", "Invalid rules\n\n" + e1.getMessage(), JOptionPane.ERROR_MESSAGE);
+                }
+            } else if (this.btnPreview.equals(btn) && isReplaceMode()) {
+                try {
+                    this.controller.previewReplacement(this.tfFind.getText(), this.tfReplace.getText(),
+                            this.cbIgnoreCase.isSelected(), this.cbReplaceAll.isSelected(), getExtension(),
+                            (CollisionMode) this.boxCollisionMode.getSelectedItem());
+                } catch (MalformedTagException e1) {
+                    this.logger.error("Invalid find and replace : " + this.tfFind.getText() + " -> "
+                            + this.tfReplace.getText() + " (" + e1.getMessage() + ")");
+                    pop("Find & Replace Error", "Invalid find and replace\n\n" + e1.getMessage(),
+                            JOptionPane.ERROR_MESSAGE);
+                }
+            } else if (this.btnPreview.equals(btn)) {
                 try {
-                    this.controller.renameCurrentSelection(this.tfPattern.getText(), true);
-                    this.controller.renameCurrentSelection(this.tfPattern.getText(), false);
+                    this.controller.previewCurrentSelection(this.tfPattern.getText(), this.tfSourceRegex.getText(),
+                            getExtension(), (CollisionMode) this.boxCollisionMode.getSelectedItem());
                 } catch (MalformedTagException e1) {
                     this.logger.error(
                             "Invalid pattern string : " + this.tfPattern.getText() + " (" + e1.getMessage() + ")");
@@ -205,6 +409,43 @@ public class RenamingPanel extends JPanel implements ActionListener {
                             "Invalid pattern string : " + this.tfPattern.getText() + "\n\n" + e1.getMessage(),
                             JOptionPane.ERROR_MESSAGE);
                 }
+            } else if (this.btnApply.equals(btn)) {
+                if (isPreviewUpToDate()) {
+                    this.controller.applyRenamePlan();
+                } else {
+                    pop("Apply", "The preview does not match the current pattern or file selection.\n\n"
+                            + "Preview the pattern before applying it.", JOptionPane.WARNING_MESSAGE);
+                }
+            } else if (this.btnExport.equals(btn)) {
+                if (!isPreviewUpToDate()) {
+                    pop("Export", "The preview does not match the current pattern or file selection.\n\n"
+                            + "Preview the pattern before exporting it.", JOptionPane.WARNING_MESSAGE);
+                    return;
+                }
+                JFileChooser chooser = new JFileChooser();
+                chooser.setFileFilter(new FileNameExtensionFilter("CSV or NDJSON file", "csv", "ndjson", "jsonl"));
+                if (chooser.showSaveDialog(this.controller.getView()) == JFileChooser.APPROVE_OPTION) {
+                    this.controller.exportRenamePlan(chooser.getSelectedFile());
+                }
+            } else if (this.btnRenameTree.equals(btn)) {
+                JFileChooser chooser = new JFileChooser();
+                chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+                if (chooser.showOpenDialog(this.controller.getView()) != JFileChooser.APPROVE_OPTION) {
+                    return;
+                }
+                File root = chooser.getSelectedFile();
+                int answer = JOptionPane.showConfirmDialog(this.controller.getView(), "Do you want to rename every "
+                        + "file under " + root + " ?\n\nThe files are renamed without preview.", "Rename Tree",
+                        JOptionPane.YES_NO_OPTION);
+                if (answer == JOptionPane.YES_OPTION) {
+                    renameTree(root);
+                }
+            } else if (this.btnRevert.equals(btn)) {
+                int answer = JOptionPane.showConfirmDialog(this.controller.getView(),
+                        "Do you want to revert the last rename batch ?", "Revert", JOptionPane.YES_NO_OPTION);
+                if (answer == JOptionPane.YES_OPTION) {
+                    this.controller.revertLastBatch();
+                }
             }
         }
     }
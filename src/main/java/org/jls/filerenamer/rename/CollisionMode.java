@@ -0,0 +1,57 @@
+/*
+ * MIT License
+ *
+ * Copyright 2020 Julien LE SAUCE
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jls.filerenamer.rename;
+
+import org.jls.filerenamer.util.FileInfo;
+
+public enum CollisionMode {
+
+    FAIL("Fail", null, null),
+    PARENTHESIS("Append \" (n)\"", " (", ")"),
+    UNDERSCORE("Append \"_n\"", "_", "");
+
+    private final String label;
+    private final String prefix;
+    private final String suffix;
+
+    CollisionMode(final String label, final String prefix, final String suffix) {
+        this.label = label;
+        this.prefix = prefix;
+        this.suffix = suffix;
+    }
+
+    // Name.ext -> Name (n).ext or Name_n.ext, the counter goes before the whole extension of name.tar.gz
+    String appendCounter(final String name, final int counter) {
+        int dot = FileInfo.indexOfExtension(name);
+        if (dot < 0) {
+            return name + this.prefix + counter + this.suffix;
+        }
+        return name.substring(0, dot) + this.prefix + counter + this.suffix + name.substring(dot);
+    }
+
+    @Override
+    public String toString() {
+        return this.label;
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * MIT License
+ *
+ * Copyright 2020 Julien LE SAUCE
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jls.filerenamer.rename;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Makes the targets of a plan unique by appending a counter to colliding names. Each directory is listed once
+ * and resolved with a hash set of the names that are taken, plus the next free counter of each colliding name,
+ * so resolving a file costs O(1) whatever the number of duplicates. On a case-insensitive file store, names are
+ * compared in upper case. Each store is probed once, by looking up one of its paths with the case of its letters
+ * swapped.
+ */
+final class CollisionResolver {
+
+    // Whether the platform compares file names ignoring case, used when a store cannot be probed
+    private static final boolean PLATFORM_IGNORES_CASE = new File("a").equals(new File("A"));
+
+    private CollisionResolver() {
+    }
+
+    static void resolve(final RenameOperation[] operations, final CollisionMode mode) {
+        if (mode == CollisionMode.FAIL) {
+            return;
+        }
+        HashMap<File, IntList> directories = new HashMap<>();
+        // Files renamed by the batch, by source directory, which give their current name up
+        HashMap<File, IntList> departures = new HashMap<>();
+        for (int i = 0; i < operations.length; i++) {
+            if (operations[i] != null) {
+                directories.computeIfAbsent(operations[i].getTarget().getParentFile(), d -> new IntList()).add(i);
+                if (!operations[i].isUnchanged()) {
+                    departures.computeIfAbsent(operations[i].getSource().getParentFile(), d -> new IntList()).add(i);
+                }
+            }
+        }
+        Map<FileStore, Boolean> stores = new ConcurrentHashMap<>();
+        directories.entrySet().parallelStream().forEach(entry -> resolve(operations, entry.getKey(), entry.getValue(),
+                departures.get(entry.getKey()), mode, ignoresCase(entry.getKey(), stores)));
+    }
+
+    private static void resolve(final RenameOperation[] operations, final File directory, final IntList indices,
+                                final IntList departures, final CollisionMode mode, final boolean ignoreCase) {
+        HashSet<String> taken = new HashSet<>();
+        String[] existing = directory.list();
+        if (existing != null) {
+            for (String name : existing) {
+                taken.add(key(name, ignoreCase));
+            }
+        }
+        for (int i = 0; departures != null && i < departures.size(); i++) {
+            taken.remove(key(operations[departures.get(i)].getSource().getName(), ignoreCase));
+        }
+
+        HashMap<String, Integer> nextCounters = new HashMap<>();
+        for (int i = 0; i < indices.size(); i++) {
+            int index = indices.get(i);
+            RenameOperation operation = operations[index];
+            String name = operation.getNewName();
+            String key = key(name, ignoreCase);
+            if (operation.isUnchanged() || taken.add(key)) {
+                continue;
+            }
+            int counter = nextCounters.getOrDefault(key, 1);
+            String candidate = mode.appendCounter(name, counter);
+            while (!taken.add(key(candidate, ignoreCase))) {
+                candidate = mode.appendCounter(name, ++counter);
+            }
+            nextCounters.put(key, counter + 1);
+            operations[index] = operation.withNewName(candidate);
+            operation.getFileInfo().setNewName(operations[index].getRelativeTarget());
+        }
+    }
+
+    private static String key(final String name, final boolean ignoreCase) {
+        return ignoreCase ? name.toUpperCase(Locale.ROOT) : name;
+    }
+
+    // The directory may not exist yet, in which case the store of its nearest existing ancestor is probed
+    private static boolean ignoresCase(final File directory, final Map<FileStore, Boolean> stores) {
+        File dir = directory;
+        while (dir != null && !dir.isDirectory()) {
+            dir = dir.getParentFile();
+        }
+        if (dir == null) {
+            return PLATFORM_IGNORES_CASE;
+        }
+        Path path = dir.toPath().toAbsolutePath();
+        try {
+            return stores.computeIfAbsent(Files.getFileStore(path), s -> probe(path, s));
+        } catch (IOException e) {
+            return PLATFORM_IGNORES_CASE;
+        }
+    }
+
+    // Looks up a path of the store with the case of its letters swapped : an entry of the directory, else the
+    // directory or one of its ancestors, as long as its parent is on the same store
+    private static boolean probe(final Path directory, final FileStore store) {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                if (hasCase(entry)) {
+                    return isSameAsSwapped(entry);
+                }
+            }
+            for (Path path = directory; path.getParent() != null; path = path.getParent()) {
+                if (!Files.getFileStore(path.getParent()).equals(store)) {
+                    break;
+                }
+                if (hasCase(path)) {
+                    return isSameAsSwapped(path);
+                }
+            }
+        } catch (IOException e) {
+            return PLATFORM_IGNORES_CASE;
+        }
+        return PLATFORM_IGNORES_CASE;
+    }
+
+    private static boolean hasCase(final Path path) {
+        String name = path.getFileName().toString();
+        return !swapCase(name).equals(name);
+    }
+
+    private static boolean isSameAsSwapped(final Path path) throws IOException {
+        Path other = path.resolveSibling(swapCase(path.getFileName().toString()));
+        return Files.exists(other, LinkOption.NOFOLLOW_LINKS) && Files.isSameFile(path, other);
+    }
+
+    private static String swapCase(final String name) {
+        StringBuilder sb = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            sb.append(Character.isUpperCase(c) ? Character.toLowerCase(c) : Character.toUpperCase(c));
+        }
+        return sb.toString();
+    }
+}
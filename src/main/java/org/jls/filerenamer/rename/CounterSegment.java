@@ -0,0 +1,60 @@
+/*
+ * MIT License
+ *
+ * Copyright 2020 Julien LE SAUCE
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jls.filerenamer.rename;
+
+import org.jls.filerenamer.util.FileInfo;
+
+final class CounterSegment implements Segment {
+
+    private final int width;
+    private final long start;
+
+    CounterSegment(final int width, final long start) {
+        this.width = width;
+        this.start = start;
+    }
+
+    // The value only depends on the position of the file, so files can be numbered in any order
+    @Override
+    public void appendTo(final StringBuilder sb, final FileInfo file, final int index, final TagContext context) {
+        long value = this.start + index;
+        for (int digits = digitCount(value); digits < this.width; digits++) {
+            sb.append('0');
+        }
+        sb.append(value);
+    }
+
+    private static int digitCount(final long value) {
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        return digits;
+    }
+
+    @Override
+    public String toString() {
+        return "{inc=%" + this.width + "d," + this.start + "}";
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * MIT License
+ *
+ * Copyright 2020 Julien LE SAUCE
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jls.filerenamer.rename;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/*
+ * Orders the sequences of a schedule when some operations rename a directory that contains other renamed files.
+ * A file is moved before the directory of its source or of its target is renamed away, and after the directory
+ * of its source or of its target is moved into place (e.g. when a batch is reverted). The sequences are sorted by
+ * level with these constraints, so independent subtrees still run in parallel within a level. Directories are
+ * resolved from the indexes of the planner, each directory being looked up once.
+ */
+final class DepthOrder {
+
+    private DepthOrder() {
+    }
+
+    static void apply(final List<RenameOperation> operations, final HashMap<File, Integer> sources,
+                      final HashMap<File, Integer> targets, final RenameSchedule schedule,
+                      final RenameReport report) {
+        List<int[]> sequences = schedule.getSequences();
+        int[] sequenceOf = new int[operations.size()];
+        Arrays.fill(sequenceOf, -1);
+        for (int s = 0; s < sequences.size(); s++) {
+            for (int step : sequences.get(s)) {
+                sequenceOf[RenameSchedule.indexOf(step)] = s;
+            }
+        }
+
+        HashMap<File, Integer> sourceDirectories = new HashMap<>();
+        HashMap<File, Integer> targetDirectories = new HashMap<>();
+        IntList before = new IntList();
+        IntList after = new IntList();
+        for (int i = 0; i < operations.size(); i++) {
+            RenameOperation operation = operations.get(i);
+            File sourceDirectory = operation.getSource().getParentFile();
+            int parent = nearest(sourceDirectory, sources, sourceDirectories);
+            if (parent >= 0) {
+                schedule.addChild(parent, i);
+            }
+            if (sequenceOf[i] < 0) {
+                continue;
+            }
+            File targetDirectory = operation.getTarget().getParentFile();
+            addEdge(sequenceOf, i, parent, before, after);
+            addEdge(sequenceOf, i, nearest(targetDirectory, sources, sourceDirectories), before, after);
+            addEdge(sequenceOf, nearest(sourceDirectory, targets, targetDirectories), i, before, after);
+            addEdge(sequenceOf, nearest(targetDirectory, targets, targetDirectories), i, before, after);
+        }
+        if (before.size() > 0) {
+            sortByLevel(operations, schedule, sequences.size(), before, after, report);
+        }
+    }
+
+    // Nearest operation whose file, in the given index, is the directory or one of its ancestors
+    private static int nearest(final File directory, final HashMap<File, Integer> files,
+                               final HashMap<File, Integer> resolved) {
+        ArrayList<File> path = null;
+        Integer found = null;
+        for (File dir = directory; dir != null; dir = dir.getParentFile()) {
+            found = resolved.get(dir);
+            if (found != null) {
+                break;
+            }
+            if (path == null) {
+                path = new ArrayList<>();
+            }
+            path.add(dir);
+            found = files.get(dir);
+            if (found != null) {
+                break;
+            }
+        }
+        int index = found != null ? found : -1;
+        if (path != null) {
+            for (File dir : path) {
+                resolved.put(dir, index);
+            }
+        }
+        return index;
+    }
+
+    private static void addEdge(final int[] sequenceOf, final int first, final int then, final IntList before,
+                                final IntList after) {
+        if (first >= 0 && then >= 0 && sequenceOf[first] >= 0 && sequenceOf[then] >= 0
+                && sequenceOf[first] != sequenceOf[then]) {
+            before.add(sequenceOf[first]);
+            after.add(sequenceOf[then]);
+        }
+    }
+
+    // Longest path from the sequences without predecessor, sequences left in a cycle are not run
+    private static void sortByLevel(final List<RenameOperation> operations, final RenameSchedule schedule,
+                                    final int nbSequences, final IntList before, final IntList after,
+                                    final RenameReport report) {
+        int[] offsets = new int[nbSequences + 1];
+        int[] nbPredecessors = new int[nbSequences];
+        for (int e = 0; e < before.size(); e++) {
+            offsets[before.get(e) + 1]++;
+            nbPredecessors[after.get(e)]++;
+        }
+        for (int s = 0; s < nbSequences; s++) {
+            offsets[s + 1] += offsets[s];
+        }
+        int[] successors = new int[before.size()];
+        int[] fill = Arrays.copyOf(offsets, nbSequences);
+        for (int e = 0; e < before.size(); e++) {
+            successors[fill[before.get(e)]++] = after.get(e);
+        }
+
+        int[] levels = new int[nbSequences];
+        int[] queue = new int[nbSequences];
+        int head = 0;
+        int tail = 0;
+        for (int s = 0; s < nbSequences; s++) {
+            if (nbPredecessors[s] == 0) {
+                queue[tail++] = s;
+            }
+        }
+        int nbLevels = 1;
+        while (head < tail) {
+            int s = queue[head++];
+            for (int e = offsets[s]; e < offsets[s + 1]; e++) {
+                int next = successors[e];
+                levels[next] = Math.max(levels[next], levels[s] + 1);
+                nbLevels = Math.max(nbLevels, levels[next] + 1);
+                if (--nbPredecessors[next] == 0) {
+                    queue[tail++] = next;
+                }
+            }
+        }
+        if (tail < nbSequences) {
+            for (int s = 0; s < nbSequences; s++) {
+                if (nbPredecessors[s] > 0) {
+                    levels[s] = -1;
+                    for (int step : schedule.getSequences().get(s)) {
+                        int index = RenameSchedule.indexOf(step);
+                        report.set(index, RenameOutcome.FAILED, OutcomeReason.CIRCULAR_RENAME);
+                    }
+                }
+            }
+        }
+        schedule.setLevels(levels, nbLevels);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * MIT License
+ *
+ * Copyright 2020 Julien LE SAUCE
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jls.filerenamer.rename;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/*
+ * Concurrency limit of the moves on one file store, adjusted by AIMD from the latency of each move. The limit grows
+ * by about one slot per window of moves while the latency stays close to the best latency seen on the store, and is
+ * cut by a quarter, at most once per window, when a move takes more than TOLERANCE times that latency. A slow store
+ * thus keeps few directories in flight while a fast one runs up to the maximum limit.
+ */
+final class FileStoreLimiter {
+
+    private static final double TOLERANCE = 2.0;
+    private static final double BACKOFF = 0.75;
+    // Lets the baseline follow a store whose latency changes for good
+    private static final double BASELINE_DRIFT = 0.01;
+
+    private final String name;
+    private final int maxLimit;
+    private final ArrayDeque<Runnable> pending;
+    private double limit;
+    private double baseline;
+    private int inFlight;
+    private int sinceDecrease;
+
+    FileStoreLimiter(final String name, final int maxLimit) {
+        this.name = name;
+        this.maxLimit = maxLimit;
+        this.pending = new ArrayDeque<>();
+        this.limit = Math.max(1, maxLimit / 2);
+        this.baseline = 0;
+        this.inFlight = 0;
+        this.sinceDecrease = 0;
+    }
+
+    // Runs the task on the executor once the store has a free slot
+    synchronized CompletableFuture<Void> submit(final Runnable task, final Executor executor) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        this.pending.add(() -> {
+            try {
+                task.run();
+                future.complete(null);
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            } finally {
+                release(executor);
+            }
+        });
+        dispatch(executor);
+        return future;
+    }
+
+    private synchronized void release(final Executor executor) {
+        this.inFlight--;
+        dispatch(executor);
+    }
+
+    private void dispatch(final Executor executor) {
+        while (this.inFlight < (int) this.limit && !this.pending.isEmpty()) {
+            this.inFlight++;
+            executor.execute(this.pending.poll());
+        }
+    }
+
+    synchronized void record(final long latencyNanos) {
+        boolean overloaded = this.baseline > 0 && latencyNanos > this.baseline * TOLERANCE;
+        if (this.baseline == 0 || latencyNanos < this.baseline) {
+            this.baseline = latencyNanos;
+        } else {
+            this.baseline += (latencyNanos - this.baseline) * BASELINE_DRIFT;
+        }
+        if (!overloaded) {
+            // The limit only grows when it is reached, otherwise its latency is unknown
+            if (this.inFlight >= (int) this.limit) {
+                this.limit = Math.min(this.maxLimit, this.limit + 1 / this.limit);
+            }
+        } else if (this.sinceDecrease >= this.limit) {
+            this.limit = Math.max(1, this.limit * BACKOFF);
+            this.sinceDecrease = 0;
+        }
+        this.sinceDecrease++;
+    }
+
+    synchronized int getLimit() {
+        return (int) this.limit;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + this.name + ", Limit=" + getLimit() + "/" + this.maxLimit + "]";
+    }
+}
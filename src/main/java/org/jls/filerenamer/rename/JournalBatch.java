@@ -0,0 +1,174 @@
+/*
+ * MIT License
+ *
+ * Copyright 2020 Julien LE SAUCE
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jls.filerenamer.rename;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.jls.filerenamer.util.TaskProgress;
+
+/*
+ * Last batch of a journal. Only its counts and the position of each of its plans are kept : the moves are read back
+ * one plan at a time, so resuming or reverting a batch takes the memory of its largest plan, as the batch itself.
+ */
+public final class JournalBatch {
+
+    private final Path path;
+    // Position in the journal of the PLAN record of each plan
+    private long[] plans;
+    private int nbPlans;
+    private long end;
+    private boolean begun;
+    private boolean complete;
+    private int size;
+    private int nbMoves;
+
+    JournalBatch(final Path path) {
+        this.path = path;
+        this.plans = new long[0];
+        this.nbPlans = 0;
+        this.end = 0;
+        this.begun = false;
+        this.complete = false;
+        this.size = 0;
+        this.nbMoves = 0;
+    }
+
+    private JournalBatch(final Path path, final JournalBatch batch) {
+        this.path = path;
+        this.plans = batch.plans;
+        this.nbPlans = batch.nbPlans;
+        this.end = batch.end;
+        this.begun = batch.begun;
+        this.complete = batch.complete;
+        this.size = batch.size;
+        this.nbMoves = batch.nbMoves;
+    }
+
+    boolean add(final long position, final byte type, final int index, final String from, final String to) {
+        switch (type) {
+            case RenameJournal.BEGIN:
+                this.nbPlans = 0;
+                this.begun = true;
+                this.complete = false;
+                this.size = 0;
+                this.nbMoves = 0;
+                break;
+            case RenameJournal.PLAN:
+                if (this.nbPlans == this.plans.length) {
+                    this.plans = Arrays.copyOf(this.plans, Math.max(16, this.nbPlans * 2));
+                }
+                this.plans[this.nbPlans++] = position;
+                break;
+            case RenameJournal.PLANNED:
+                this.size++;
+                break;
+            case RenameJournal.MOVED:
+                this.nbMoves++;
+                break;
+            case RenameJournal.TEMP:
+                break;
+            case RenameJournal.END:
+                this.complete = true;
+                break;
+            default:
+                throw new IllegalArgumentException("Illegal journal record type : " + type);
+        }
+        return true;
+    }
+
+    void setEnd(final long end) {
+        this.end = end;
+    }
+
+    /*
+     * The batch that resumes or reverts this one overwrites the journal, so the plans are read from a copy of the
+     * records of the batch.
+     */
+    public JournalBatch copyTo(final Path copy) throws IOException {
+        try (FileChannel source = FileChannel.open(this.path, StandardOpenOption.READ);
+             FileChannel target = FileChannel.open(copy, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            long position = 0;
+            while (position < this.end) {
+                position += source.transferTo(position, this.end - position, target);
+            }
+        }
+        return new JournalBatch(copy, this);
+    }
+
+    public boolean isEmpty() {
+        return !this.begun;
+    }
+
+    public boolean isInterrupted() {
+        return this.begun && !this.complete;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public int getNbMoves() {
+        return this.nbMoves;
+    }
+
+    /*
+     * Hands out the moves that finish the batch, plan by plan in the order they were run : each file goes from where
+     * the journal last saw it to its planned target. Files already in place are counted as done. Stops before the
+     * next plan once the progress is cancelled.
+     */
+    public void forEachPendingMoves(final TaskProgress progress, final Consumer<List<File[]>> consumer)
+            throws IOException {
+        for (int i = 0; i < this.nbPlans && !progress.isCancelled(); i++) {
+            JournalPlan plan = RenameJournal.readPlan(this.path, this.plans[i], this.complete);
+            List<File[]> moves = plan.getPendingMoves();
+            progress.advance(plan.size() - moves.size());
+            consumer.accept(moves);
+        }
+    }
+
+    // Same as forEachPendingMoves, with the moves that undo the batch : plans are undone from the last one
+    public void forEachRevertMoves(final TaskProgress progress, final Consumer<List<File[]>> consumer)
+            throws IOException {
+        for (int i = this.nbPlans - 1; i >= 0 && !progress.isCancelled(); i--) {
+            JournalPlan plan = RenameJournal.readPlan(this.path, this.plans[i], this.complete);
+            List<File[]> moves = plan.getRevertMoves();
+            progress.advance(plan.size() - moves.size());
+            consumer.accept(moves);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "[" + getClass().getSimpleName() + ", Path=" + this.path + ", Plans=" + this.nbPlans + ", Operations="
+                + this.size + ", Moves=" + this.nbMoves + ", Complete=" + this.complete + "]";
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * MIT License
+ *
+ * Copyright 2020 Julien LE SAUCE
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jls.filerenamer.rename;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Operations of one plan of a journaled batch, numbered from the offset of the plan in the batch
+final class JournalPlan {
+
+    private final int offset;
+    private final boolean complete;
+    private File[] sources;
+    private File[] targets;
+    private File[] locations;
+    private File[] tempFiles;
+    // Operations refused by the planner are not journaled and leave holes below end
+    private int end;
+
+    JournalPlan(final int offset, final boolean complete) {
+        this.offset = offset;
+        this.complete = complete;
+        this.sources = new File[0];
+        this.targets = new File[0];
+        this.locations = new File[0];
+        this.tempFiles = new File[0];
+        this.end = 0;
+    }
+
+    void add(final byte type, final int index, final String from, final String to) {
+        int i = index - this.offset;
+        switch (type) {
+            case RenameJournal.PLANNED:
+                if (i >= this.sources.length) {
+                    grow(i + 1);
+                }
+                this.end = Math.max(this.end, i + 1);
+                this.sources[i] = new File(from);
+                this.targets[i] = new File(to);
+                this.locations[i] = this.sources[i];
+                break;
+            case RenameJournal.MOVED:
+                this.locations[i] = new File(to);
+                break;
+            case RenameJournal.TEMP:
+                this.tempFiles[i] = new File(from);
+                break;
+            default:
+                throw new IllegalArgumentException("Illegal journal record type in a plan : " + type);
+        }
+    }
+
+    private void grow(final int minCapacity) {
+        int capacity = Math.max(minCapacity, this.sources.length * 2);
+        this.sources = Arrays.copyOf(this.sources, capacity);
+        this.targets = Arrays.copyOf(this.targets, capacity);
+        this.locations = Arrays.copyOf(this.locations, capacity);
+        this.tempFiles = Arrays.copyOf(this.tempFiles, capacity);
+    }
+
+    int size() {
+        int size = 0;
+        for (int i = 0; i < this.end; i++) {
+            if (this.sources[i] != null) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    // Moves that finish the plan : each file goes from where the journal last saw it to its planned target
+    List<File[]> getPendingMoves() {
+        ArrayList<File[]> moves = new ArrayList<>();
+        for (int i = 0; i < this.end; i++) {
+            File location = locate(i);
+            if (location != null && !location.getPath().equals(this.targets[i].getPath())) {
+                moves.add(new File[]{location, this.targets[i]});
+            }
+        }
+        return moves;
+    }
+
+    // Moves that undo the plan : each moved file goes back to its original name
+    List<File[]> getRevertMoves() {
+        ArrayList<File[]> moves = new ArrayList<>();
+        for (int i = 0; i < this.end; i++) {
+            File location = locate(i);
+            if (location != null && !location.getPath().equals(this.sources[i].getPath())) {
+                moves.add(new File[]{location, this.sources[i]});
+            }
+        }
+        return moves;
+    }
+
+    /*
+     * Moves are journaled once done, so an interrupted batch may have moved a file without recording it. A file not
+     * found where the journal last saw it is looked for where the batch moves it next : its temporary name, its
+     * target, then its source, where a file is restored when it cannot leave its temporary name.
+     */
+    private File locate(final int index) {
+        File location = this.locations[index];
+        if (location == null || this.complete || location.exists()) {
+            return location;
+        }
+        File[] candidates = {this.tempFiles[index], this.targets[index], this.sources[index]};
+        for (File candidate : candidates) {
+            if (candidate != null && !candidate.equals(location) && candidate.exists()) {
+                return candidate;
+            }
+        }
+        return location;
+    }
+}
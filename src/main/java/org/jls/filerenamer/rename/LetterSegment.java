@@ -0,0 +1,78 @@
+/*
+ * MIT License
+ *
+ * Copyright 2020 Julien LE SAUCE
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jls.filerenamer.rename;
+
+import org.jls.filerenamer.util.FileInfo;
+
+/*
+ * Letter sequence a, b, ..., z, aa, ab, ... (bijective base 26). The width is the minimal number of letters : with
+ * a width of 2 the sequence starts at aa. Letters are computed from the file index, without iterating over the
+ * previous values.
+ */
+final class LetterSegment implements Segment {
+
+    static final int MAX_WIDTH = 12;
+    static final long MAX_START = 1000000000000L;
+
+    private static final int RADIX = 26;
+    // FIRST_VALUES[n] is the number of sequences shorter than n letters, i.e. the value of "a...a" (n letters)
+    private static final long[] FIRST_VALUES = new long[MAX_WIDTH + 2];
+
+    static {
+        long count = RADIX;
+        for (int n = 2; n < FIRST_VALUES.length; n++) {
+            FIRST_VALUES[n] = FIRST_VALUES[n - 1] + count;
+            count *= RADIX;
+        }
+    }
+
+    private final int width;
+    private final long start;
+
+    LetterSegment(final int width, final long start) {
+        this.width = width;
+        this.start = start;
+    }
+
+    @Override
+    public void appendTo(final StringBuilder sb, final FileInfo file, final int index, final TagContext context) {
+        long value = FIRST_VALUES[this.width] + this.start + index;
+        int length = this.width;
+        while (length < MAX_WIDTH + 1 && value >= FIRST_VALUES[length + 1]) {
+            length++;
+        }
+        long rank = value - FIRST_VALUES[length];
+        int end = sb.length() + length;
+        sb.setLength(end);
+        for (int i = end - 1; i >= end - length; i--) {
+            sb.setCharAt(i, (char) ('a' + rank % RADIX));
+            rank /= RADIX;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "{let=%" + this.width + "c," + this.start + "}";
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * MIT License
+ *
+ * Copyright 2020 Julien LE SAUCE
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jls.filerenamer.rename;
+
+import org.jls.filerenamer.util.FileInfo;
+
+// Tag with a modifier, e.g. {file_name:lower}, transformed in place in the builder
+final class ModifiedSegment implements Segment {
+
+    private final Segment segment;
+    private final TextModifier modifier;
+
+    ModifiedSegment(final Segment segment, final TextModifier modifier) {
+        this.segment = segment;
+        this.modifier = modifier;
+    }
+
+    @Override
+    public void appendTo(final StringBuilder sb, final FileInfo file, final int index, final TagContext context) {
+        int start = sb.length();
+        this.segment.appendTo(sb, file, index, context);
+        this.modifier.apply(sb, start);
+    }
+
+    @Override
+    public String toString() {
+        String tag = this.segment.toString();
+        return tag.substring(0, tag.length() - 1) + ":" + this.modifier + "}";
+    }
+}
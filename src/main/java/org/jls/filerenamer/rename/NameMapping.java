@@ -0,0 +1,233 @@
+/*
+ * MIT License
+ *
+ * Copyright 2020 Julien LE SAUCE
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jls.filerenamer.rename;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import org.jls.filerenamer.util.FileInfo;
+
+/*
+ * Old name -> new name mapping read from a CSV or TSV file, used by the {imported_name} tag. The file is memory
+ * mapped and parsed byte by byte : only the two first fields of each row are decoded, and no line is ever built.
+ * The separator is a tab if the first row contains one, a comma otherwise. Fields may be quoted ("" escapes a
+ * quote). The old name is a file name, a base name or a path, relative paths being resolved against the
+ * directory of the mapping file.
+ */
+public final class NameMapping {
+
+    private static final byte QUOTE = '"';
+    private static final int BYTES_PER_ROW = 32;
+
+    private final Path path;
+    private final HashMap<String, Integer> rows;
+    private final ArrayList<String> oldNames;
+    private final ArrayList<String> newNames;
+    private int nbIgnoredRows;
+
+    private NameMapping(final Path path, final int capacity) {
+        this.path = path;
+        this.rows = new HashMap<>(capacity * 4 / 3 + 1);
+        this.oldNames = new ArrayList<>(capacity);
+        this.newNames = new ArrayList<>(capacity);
+        this.nbIgnoredRows = 0;
+    }
+
+    public static NameMapping load(final Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Mapping file is too large : " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            NameMapping mapping = new NameMapping(path, (int) (size / BYTES_PER_ROW));
+            mapping.parse(buffer);
+            return mapping;
+        }
+    }
+
+    private void parse(final MappedByteBuffer buffer) {
+        // UTF-8 byte order mark
+        if (buffer.remaining() >= 3 && buffer.get(0) == (byte) 0xEF && buffer.get(1) == (byte) 0xBB
+                && buffer.get(2) == (byte) 0xBF) {
+            buffer.position(3);
+        }
+        byte separator = findSeparator(buffer);
+        File directory = this.path.toAbsolutePath().getParent().toFile();
+        FieldReader reader = new FieldReader(buffer, separator);
+        while (buffer.hasRemaining()) {
+            String oldName = reader.next();
+            String newName = reader.atEndOfRow() ? null : reader.next();
+            reader.skipRow();
+            if (oldName.isEmpty() && newName == null) {
+                continue;
+            }
+            if (oldName.isEmpty() || newName == null || newName.isEmpty()) {
+                this.nbIgnoredRows++;
+                continue;
+            }
+            if (oldName.indexOf('/') >= 0 || oldName.indexOf(File.separatorChar) >= 0) {
+                File file = new File(oldName);
+                oldName = (file.isAbsolute() ? file : new File(directory, oldName)).toPath().normalize().toString();
+            }
+            if (this.rows.putIfAbsent(oldName, this.oldNames.size()) != null) {
+                this.nbIgnoredRows++;
+                continue;
+            }
+            this.oldNames.add(oldName);
+            this.newNames.add(newName);
+        }
+    }
+
+    private static byte findSeparator(final MappedByteBuffer buffer) {
+        for (int i = buffer.position(); i < buffer.limit(); i++) {
+            byte b = buffer.get(i);
+            if (b == '\t') {
+                return '\t';
+            } else if (b == '\n') {
+                break;
+            }
+        }
+        return ',';
+    }
+
+    // Row of the file looked up by path, then by name, then by base name, -1 if there is none
+    public int indexOf(final FileInfo file) {
+        Integer row = this.rows.get(file.getPath());
+        if (row == null) {
+            row = this.rows.get(file.getFile().getName());
+        }
+        if (row == null) {
+            row = this.rows.get(file.getBaseName());
+        }
+        return row != null ? row : -1;
+    }
+
+    // New name of a row without the extension of the file, which is added back with the name
+    public String getNewBaseName(final int row, final String extension) {
+        String newName = this.newNames.get(row);
+        int dot = newName.length() - extension.length() - 1;
+        if (!extension.isEmpty() && dot > 0 && newName.charAt(dot) == '.'
+                && newName.regionMatches(true, dot + 1, extension, 0, extension.length())) {
+            return newName.substring(0, dot);
+        }
+        return newName;
+    }
+
+    public String getOldName(final int row) {
+        return this.oldNames.get(row);
+    }
+
+    public int size() {
+        return this.oldNames.size();
+    }
+
+    // Rows without old or new name, and rows whose old name was already mapped
+    public int getNbIgnoredRows() {
+        return this.nbIgnoredRows;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + getClass().getSimpleName() + ", Path=" + this.path + ", Rows=" + size() + ", Ignored="
+                + this.nbIgnoredRows + "]";
+    }
+
+    // Decodes the fields of the buffer, reusing a single byte array
+    private static final class FieldReader {
+
+        private final MappedByteBuffer buffer;
+        private final byte separator;
+        private byte[] bytes;
+        private boolean endOfRow;
+
+        private FieldReader(final MappedByteBuffer buffer, final byte separator) {
+            this.buffer = buffer;
+            this.separator = separator;
+            this.bytes = new byte[256];
+            this.endOfRow = false;
+        }
+
+        private String next() {
+            return read(true);
+        }
+
+        // Returns null when the field is skipped
+        private String read(final boolean decode) {
+            int length = 0;
+            boolean quoted = this.buffer.hasRemaining() && this.buffer.get(this.buffer.position()) == QUOTE;
+            if (quoted) {
+                this.buffer.get();
+            }
+            this.endOfRow = true;
+            while (this.buffer.hasRemaining()) {
+                byte b = this.buffer.get();
+                if (quoted) {
+                    if (b == QUOTE) {
+                        if (!this.buffer.hasRemaining() || this.buffer.get(this.buffer.position()) != QUOTE) {
+                            quoted = false;
+                            continue;
+                        }
+                        this.buffer.get();
+                    }
+                } else if (b == this.separator) {
+                    this.endOfRow = false;
+                    break;
+                } else if (b == '\n') {
+                    break;
+                } else if (b == '\r') {
+                    continue;
+                }
+                if (!decode) {
+                    continue;
+                }
+                if (length == this.bytes.length) {
+                    byte[] larger = new byte[length * 2];
+                    System.arraycopy(this.bytes, 0, larger, 0, length);
+                    this.bytes = larger;
+                }
+                this.bytes[length++] = b;
+            }
+            return decode ? new String(this.bytes, 0, length, StandardCharsets.UTF_8) : null;
+        }
+
+        private boolean atEndOfRow() {
+            return this.endOfRow;
+        }
+
+        // Skips the other fields of the current row
+        private void skipRow() {
+            while (!this.endOfRow && this.buffer.hasRemaining()) {
+                read(false);
+            }
+        }
+    }
+}
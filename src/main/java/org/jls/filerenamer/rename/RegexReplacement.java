@@ -0,0 +1,144 @@
+/*
+ * MIT License
+ *
+ * Copyright 2020 Julien LE SAUCE
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jls.filerenamer.rename;
+
+import java.util.ArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.jls.filerenamer.util.FileInfo;
+import org.jls.filerenamer.util.MalformedTagException;
+
+/*
+ * Find and replace over the base name of the files. The replacement uses the syntax of Matcher.appendReplacement ($n
+ * refers to a group, \ escapes the next character) but it is parsed once, when the replacement is compiled. Files
+ * whose name does not contain the regex keep their name.
+ */
+public final class RegexReplacement implements NameGenerator {
+
+    private final Pattern find;
+    private final String replacement;
+    private final boolean replaceAll;
+    // The replacement is literals[0] groups[0] literals[1] ... groups[n - 1] literals[n]
+    private final String[] literals;
+    private final int[] groups;
+    private final ThreadLocal<Matcher> matchers;
+
+    private RegexReplacement(final Pattern find, final String replacement, final boolean replaceAll,
+                             final String[] literals, final int[] groups) {
+        this.find = find;
+        this.replacement = replacement;
+        this.replaceAll = replaceAll;
+        this.literals = literals;
+        this.groups = groups;
+        this.matchers = ThreadLocal.withInitial(() -> find.matcher(""));
+    }
+
+    public static RegexReplacement compile(final String find, final String replacement, final boolean ignoreCase,
+                                           final boolean replaceAll) throws MalformedTagException {
+        if (find.isEmpty()) {
+            throw new MalformedTagException("Find regex is empty");
+        }
+        Pattern pattern;
+        try {
+            pattern = Pattern.compile(find, ignoreCase ? Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE : 0);
+        } catch (PatternSyntaxException e) {
+            throw new MalformedTagException("Invalid find regex : " + find, e);
+        }
+        int groupCount = pattern.matcher("").groupCount();
+        ArrayList<String> literals = new ArrayList<>();
+        IntList groups = new IntList();
+        StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < replacement.length(); i++) {
+            char c = replacement.charAt(i);
+            if (c == '\\') {
+                if (++i == replacement.length()) {
+                    throw new MalformedTagException("Character to be escaped is missing : " + replacement);
+                }
+                literal.append(replacement.charAt(i));
+            } else if (c == '$') {
+                if (i + 1 == replacement.length() || !isDigit(replacement.charAt(i + 1))) {
+                    throw new MalformedTagException("Illegal group reference : " + replacement);
+                }
+                // As in Matcher, the group number is the longest number that refers to an existing group
+                int group = replacement.charAt(++i) - '0';
+                if (group > groupCount) {
+                    throw new MalformedTagException("Find regex has no group " + group + " : " + find);
+                }
+                while (i + 1 < replacement.length() && isDigit(replacement.charAt(i + 1))
+                        && group * 10 + replacement.charAt(i + 1) - '0' <= groupCount) {
+                    group = group * 10 + replacement.charAt(++i) - '0';
+                }
+                literals.add(literal.toString());
+                groups.add(group);
+                literal.setLength(0);
+            } else {
+                literal.append(c);
+            }
+        }
+        literals.add(literal.toString());
+        return new RegexReplacement(pattern, replacement, replaceAll, literals.toArray(new String[0]),
+                groups.toArray());
+    }
+
+    private static boolean isDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    @Override
+    public boolean appendTo(final StringBuilder sb, final FileInfo file, final int index, final TagContext context) {
+        String name = file.getBaseName();
+        Matcher m = this.matchers.get().reset(name);
+        if (!m.find()) {
+            return false;
+        }
+        int end = 0;
+        do {
+            sb.append(name, end, m.start());
+            for (int i = 0; i < this.groups.length; i++) {
+                sb.append(this.literals[i]);
+                int start = m.start(this.groups[i]);
+                if (start >= 0) {
+                    sb.append(name, start, m.end(this.groups[i]));
+                }
+            }
+            sb.append(this.literals[this.groups.length]);
+            end = m.end();
+        } while (this.replaceAll && m.find());
+        sb.append(name, end, name.length());
+        return true;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Find=" + this.find.pattern() + ", Replace=" + this.replacement + ", IgnoreCase="
+                + ((this.find.flags() & Pattern.CASE_INSENSITIVE) != 0) + ", All=" + this.replaceAll;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + getClass().getSimpleName() + ", " + getDescription() + "]";
+    }
+}
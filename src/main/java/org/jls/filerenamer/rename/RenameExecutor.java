@@ -0,0 +1,589 @@
+/*
+ * MIT License
+ *
+ * Copyright 2020 Julien LE SAUCE
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jls.filerenamer.rename;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystemException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jls.filerenamer.util.FileInfo;
+import org.jls.filerenamer.util.TaskProgress;
+
+public final class RenameExecutor {
+
+    // Maximum number of directories renamed in parallel on each file store
+    public static final int DEFAULT_PARALLELISM = Integer.getInteger("filerenamer.rename.threads",
+            Math.max(2, Runtime.getRuntime().availableProcessors()));
+    // With sync, each directory changed by a batch is forced to disk once, after the last move of the batch
+    public static final boolean DEFAULT_SYNC_DIRECTORIES = Boolean.getBoolean("filerenamer.rename.sync");
+    private static final int MAX_ATTEMPTS = 4;
+    private static final long RETRY_DELAY_MILLIS = 50;
+    /*
+     * Messages of the errors which usually disappear once another process releases the file. Java only gives the
+     * message of the operating system, which is localized on Windows : sharing violations are only retried on English
+     * systems there.
+     */
+    private static final String[] TRANSIENT_ERRORS = {"used by another process", "locked a portion", "busy",
+            "temporarily unavailable", "interrupted system call"};
+    private static final boolean UNIX_ATTRIBUTES = FileSystems.getDefault().supportedFileAttributeViews()
+            .contains("unix");
+
+    private final Logger logger;
+    private final int parallelism;
+    private final RenameJournal journal;
+    private final boolean syncDirectories;
+    // Limits learnt on each file store are kept from one batch to the next
+    private final ConcurrentHashMap<FileStore, FileStoreLimiter> limiters;
+    private final FileStoreLimiter unknownStore;
+    // Set between beginBatch and endBatch, with the index of the next operation in the batch of the journal
+    private boolean batchOpen;
+    private int nextJournalIndex;
+
+    // Parallelism and directory sync are set by the filerenamer.rename.threads and filerenamer.rename.sync properties
+    public RenameExecutor(final RenameJournal journal) {
+        if (DEFAULT_PARALLELISM < 1) {
+            throw new IllegalArgumentException("Parallelism must be strictly positive : " + DEFAULT_PARALLELISM);
+        }
+        this.logger = LogManager.getLogger();
+        this.parallelism = DEFAULT_PARALLELISM;
+        this.journal = journal;
+        this.syncDirectories = DEFAULT_SYNC_DIRECTORIES;
+        this.limiters = new ConcurrentHashMap<>();
+        this.unknownStore = new FileStoreLimiter("Unknown", DEFAULT_PARALLELISM);
+        this.batchOpen = false;
+        this.nextJournalIndex = 0;
+    }
+
+    /*
+     * The plans executed, one after the other, between beginBatch and endBatch form a single batch of the journal,
+     * which is resumed or reverted as a whole. Outside of them, each plan is a batch of its own.
+     */
+    public synchronized void beginBatch() throws IOException {
+        if (this.batchOpen) {
+            throw new IllegalStateException("A rename batch is already open");
+        }
+        if (this.journal != null) {
+            this.journal.begin();
+        }
+        this.batchOpen = true;
+        this.nextJournalIndex = 0;
+    }
+
+    // A batch which did not complete is left unterminated in the journal, so that it is offered to resume or revert
+    public synchronized void endBatch(final boolean completed) throws IOException {
+        if (!this.batchOpen) {
+            throw new IllegalStateException("No rename batch is open");
+        }
+        this.batchOpen = false;
+        if (this.journal != null && completed) {
+            this.journal.end();
+        }
+    }
+
+    /*
+     * A cancelled batch stops each directory before its next sequence of moves : a sequence is never left half
+     * done, so no file keeps a temporary name. The moves done are journaled and the journal is closed as usual, so
+     * the batch can be reverted. Operations not started stay PENDING in the report.
+     *
+     * Scheduling, grouping and journaling the plan take seconds on large batches : they run in the background too,
+     * the caller, often the event thread, only gets the future.
+     */
+    public CompletableFuture<RenameReport> execute(final RenamePlan plan, final TaskProgress progress) {
+        List<RenameOperation> operations = plan.getOperations();
+        RenameReport report = new RenameReport(operations.size());
+        return CompletableFuture.supplyAsync(() -> prepare(operations, report, progress))
+                .thenCompose(batch -> batch != null ? run(operations, batch, report, progress)
+                        : CompletableFuture.completedFuture(report));
+    }
+
+    // Returns null if the batch was cancelled before any file was journaled
+    private ScheduledBatch prepare(final List<RenameOperation> operations, final RenameReport report,
+                                   final TaskProgress progress) {
+        RenameSchedule schedule = RenamePlanner.schedule(operations, report);
+        DirectoryBatch[][] levels = groupByDirectory(operations, schedule);
+        // Each store may use up to its maximum limit, so that a slow store never holds the threads of another one
+        int nbThreads = 1;
+        int nbBatches = 0;
+        long nbMoves = 0;
+        for (DirectoryBatch[] batches : levels) {
+            HashMap<FileStoreLimiter, Integer> nbStoreBatches = new HashMap<>();
+            for (DirectoryBatch batch : batches) {
+                nbStoreBatches.merge(batch.limiter, 1, Integer::sum);
+                nbMoves += batch.nbMoves;
+            }
+            int nbLevelThreads = 0;
+            for (int n : nbStoreBatches.values()) {
+                nbLevelThreads += Math.min(this.parallelism, n);
+            }
+            nbThreads = Math.max(nbThreads, nbLevelThreads);
+            nbBatches += batches.length;
+        }
+        if (progress.isCancelled()) {
+            return null;
+        }
+        // Operations which are not scheduled, like skipped ones, are done at once. A move through a temporary file
+        // counts once.
+        progress.advance(operations.size() - nbMoves);
+        this.logger.debug("Renaming " + operations.size() + " files in " + nbBatches + " directories and "
+                + levels.length + " levels (" + schedule.getNbTempFiles() + " cycles, Sync=" + this.syncDirectories
+                + ", Stores=" + this.limiters.values() + ")");
+        boolean ownBatch;
+        int journalOffset;
+        synchronized (this) {
+            ownBatch = !this.batchOpen;
+            journalOffset = ownBatch ? 0 : this.nextJournalIndex;
+            if (!ownBatch) {
+                this.nextJournalIndex += operations.size();
+            }
+        }
+        for (DirectoryBatch[] batches : levels) {
+            for (DirectoryBatch batch : batches) {
+                batch.journalOffset = journalOffset;
+            }
+        }
+        if (this.journal != null) {
+            try {
+                if (ownBatch) {
+                    this.journal.begin();
+                }
+                this.journal.plan(operations, schedule, journalOffset);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return new ScheduledBatch(schedule, levels, nbThreads, ownBatch);
+    }
+
+    private CompletableFuture<RenameReport> run(final List<RenameOperation> operations, final ScheduledBatch batch,
+                                                final RenameReport report, final TaskProgress progress) {
+        RenameSchedule schedule = batch.schedule;
+        // Target directories which have been created, or found, by any worker
+        ConcurrentHashMap<File, Boolean> directories = new ConcurrentHashMap<>();
+        ExecutorService pool = Executors.newFixedThreadPool(batch.nbThreads, new WorkerThreadFactory());
+        // A level starts once the previous one is done, its directories run in parallel
+        CompletableFuture<Void> done = CompletableFuture.completedFuture(null);
+        for (DirectoryBatch[] batches : batch.levels) {
+            done = done.thenCompose(v -> {
+                CompletableFuture<?>[] tasks = new CompletableFuture<?>[batches.length];
+                for (int i = 0; i < batches.length; i++) {
+                    DirectoryBatch directoryBatch = batches[i];
+                    tasks[i] = directoryBatch.limiter.submit(() -> moveAll(operations, schedule, directoryBatch,
+                            directories, report, progress), pool);
+                }
+                return CompletableFuture.allOf(tasks);
+            });
+        }
+        return done.whenComplete((result, error) -> {
+            pool.shutdown();
+            this.logger.debug("File store limits : " + this.limiters.values());
+        }).thenApply(v -> {
+            if (batch.ownBatch) {
+                endJournal();
+            }
+            return report;
+        });
+    }
+
+    private void endJournal() {
+        if (this.journal != null) {
+            try {
+                this.journal.end();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void moveAll(final List<RenameOperation> operations, final RenameSchedule schedule,
+                         final DirectoryBatch batch, final ConcurrentHashMap<File, Boolean> directories,
+                         final RenameReport report, final TaskProgress progress) {
+        int nextSequence = 0;
+        for (int i = 0; i < batch.steps.size(); i++) {
+            if (nextSequence < batch.sequenceStarts.size() && batch.sequenceStarts.get(nextSequence) == i) {
+                if (progress.isCancelled()) {
+                    break;
+                }
+                nextSequence++;
+            }
+            int step = batch.steps.get(i);
+            int index = RenameSchedule.indexOf(step);
+            RenameOperation operation = operations.get(index);
+            File location = operation.getFileInfo().getFile();
+            switch (RenameSchedule.kindOf(step)) {
+                case RenameSchedule.MOVE:
+                    if (createDirectory(operation, directories, batch)) {
+                        move(operation, operation.getSource(), operation.getTarget(), index, report, batch);
+                    } else {
+                        report.set(index, RenameOutcome.FAILED, OutcomeReason.DIRECTORY_NOT_CREATED);
+                    }
+                    break;
+                case RenameSchedule.TO_TEMP:
+                    move(operation, operation.getSource(), schedule.getTempFile(index), index, report, batch);
+                    break;
+                case RenameSchedule.FROM_TEMP:
+                    if (report.getOutcome(index) == RenameOutcome.SUCCEEDED) {
+                        moveFromTemp(operation, schedule.getTempFile(index), index, report, batch);
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Illegal schedule step : " + step);
+            }
+            IntList children = schedule.getChildren(index);
+            if (children != null && !location.equals(operation.getFileInfo().getFile())) {
+                moveDescendants(operations, schedule, children, location, operation.getFileInfo().getFile());
+            }
+            if (RenameSchedule.kindOf(step) != RenameSchedule.TO_TEMP) {
+                progress.advance(1);
+            }
+        }
+        if (this.syncDirectories) {
+            syncDirectories(batch);
+        }
+    }
+
+    // A rename is only durable once the directories holding the old and the new entries are forced to disk
+    private void syncDirectories(final DirectoryBatch batch) {
+        for (File directory : batch.changedDirectories) {
+            try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+                channel.force(true);
+            } catch (IOException | SecurityException e) {
+                // Some platforms, like Windows, cannot open a directory
+                this.logger.warn("Cannot sync directory " + directory + " : " + e);
+            }
+        }
+    }
+
+    // Files inside a renamed directory follow it in memory, the directory is not listed again
+    private static void moveDescendants(final List<RenameOperation> operations, final RenameSchedule schedule,
+                                        final IntList children, final File from, final File to) {
+        String prefix = from.getPath() + File.separator;
+        for (int i = 0; i < children.size(); i++) {
+            int child = children.get(i);
+            FileInfo file = operations.get(child).getFileInfo();
+            String path = file.getFile().getPath();
+            if (path.startsWith(prefix)) {
+                file.setFile(new File(to, path.substring(prefix.length())));
+            }
+            IntList descendants = schedule.getChildren(child);
+            if (descendants != null) {
+                moveDescendants(operations, schedule, descendants, from, to);
+            }
+        }
+    }
+
+    // Each target directory is created once, other workers moving files to it wait for its creation
+    private boolean createDirectory(final RenameOperation operation,
+                                    final ConcurrentHashMap<File, Boolean> directories, final DirectoryBatch batch) {
+        File directory = operation.getTarget().getParentFile();
+        if (directory == null || directory.equals(operation.getSource().getParentFile())) {
+            return true;
+        }
+        return directories.computeIfAbsent(directory, d -> {
+            File existing = d.getParentFile();
+            while (existing != null && !existing.isDirectory()) {
+                existing = existing.getParentFile();
+            }
+            try {
+                Files.createDirectories(d.toPath());
+                // The entry of each created directory, e.g. of 2020, 05 and 14 for 2020/05/14, is in its parent
+                ArrayList<File> parents = new ArrayList<>();
+                File parent = d.getParentFile();
+                while (parent != null) {
+                    parents.add(parent);
+                    if (parent.equals(existing)) {
+                        break;
+                    }
+                    parent = parent.getParentFile();
+                }
+                for (int i = parents.size() - 1; i >= 0; i--) {
+                    batch.changedDirectories.add(parents.get(i));
+                }
+                return Boolean.TRUE;
+            } catch (IOException | SecurityException e) {
+                this.logger.error("Cannot create directory " + d, e);
+                return Boolean.FALSE;
+            }
+        });
+    }
+
+    private void moveFromTemp(final RenameOperation operation, final File tempFile, final int index,
+                              final RenameReport report, final DirectoryBatch batch) {
+        move(operation, tempFile, operation.getTarget(), index, report, batch);
+        if (report.getOutcome(index) == RenameOutcome.FAILED) {
+            // Never leave a file under its temporary name if its original name can be restored
+            try {
+                atomicMove(tempFile.toPath(), operation.getSource().toPath());
+            } catch (IOException | SecurityException e) {
+                this.logger.error("Cannot restore " + tempFile + " to " + operation.getSource(), e);
+                report.set(index, RenameOutcome.FAILED, report.getOutcomeReason(index), "file left as " + tempFile);
+                return;
+            }
+            operation.getFileInfo().setFile(operation.getSource());
+            recordMove(batch.journalOffset + index, tempFile, operation.getSource());
+        }
+    }
+
+    private void move(final RenameOperation operation, final File source, final File target, final int index,
+                      final RenameReport report, final DirectoryBatch batch) {
+        for (int attempt = 1; ; attempt++) {
+            long start = System.nanoTime();
+            try {
+                atomicMove(source.toPath(), target.toPath());
+                batch.limiter.record(System.nanoTime() - start);
+                break;
+            } catch (FileAlreadyExistsException e) {
+                report.set(index, RenameOutcome.FAILED, OutcomeReason.TARGET_EXISTS);
+                return;
+            } catch (NoSuchFileException e) {
+                report.set(index, RenameOutcome.FAILED, OutcomeReason.SOURCE_NOT_FOUND);
+                return;
+            } catch (AccessDeniedException | SecurityException e) {
+                report.set(index, RenameOutcome.FAILED, OutcomeReason.ACCESS_DENIED);
+                return;
+            } catch (FileSystemException e) {
+                // The reason of the error is kept without the file names, so that it is shared by all the files
+                boolean busy = isTransient(e, source.toPath());
+                if (busy && attempt < MAX_ATTEMPTS && backOff(attempt)) {
+                    report.addRetry();
+                    continue;
+                }
+                report.set(index, RenameOutcome.FAILED, busy ? OutcomeReason.FILE_BUSY : OutcomeReason.IO_ERROR,
+                        e.getReason());
+                return;
+            } catch (IOException e) {
+                report.set(index, RenameOutcome.FAILED, OutcomeReason.IO_ERROR, e.getClass().getSimpleName());
+                return;
+            }
+        }
+        operation.getFileInfo().setFile(target);
+        report.set(index, RenameOutcome.SUCCEEDED, null);
+        recordMove(batch.journalOffset + index, source, target);
+        batch.changedDirectories.add(source.getParentFile());
+        batch.changedDirectories.add(target.getParentFile());
+    }
+
+    // Only regular files are retried : a busy directory is usually a mount point, which is never released
+    private static boolean isTransient(final FileSystemException e, final Path source) {
+        if (e.getReason() == null || !Files.isRegularFile(source, LinkOption.NOFOLLOW_LINKS)) {
+            return false;
+        }
+        String reason = e.getReason().toLowerCase(Locale.ROOT);
+        for (String error : TRANSIENT_ERRORS) {
+            if (reason.contains(error)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Waits 50, 100, then 200 ms plus a random part, so that workers retrying together do not collide again
+    private static boolean backOff(final int attempt) {
+        long delay = RETRY_DELAY_MILLIS << (attempt - 1);
+        try {
+            Thread.sleep(delay + ThreadLocalRandom.current().nextLong(delay / 2 + 1));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /*
+     * An atomic move is a single rename(2) : a crash leaves the file under its old or its new name, never both nor
+     * none. It replaces an existing target on most platforms, so the target is checked first; the collision
+     * resolver already ensures no file of the batch is there. Moves to another file store cannot be atomic and fall
+     * back to a copy and delete.
+     */
+    private static void atomicMove(final Path source, final Path target) throws IOException {
+        // On a case insensitive file system, a change of case finds the source itself as target
+        if (Files.exists(target, LinkOption.NOFOLLOW_LINKS) && !Files.isSameFile(source, target)) {
+            throw new FileAlreadyExistsException(target.toString());
+        }
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target);
+        }
+    }
+
+    // A move that cannot be journaled must stop the batch, otherwise it could not be reverted nor resumed
+    private void recordMove(final int index, final File from, final File to) {
+        if (this.journal != null) {
+            try {
+                this.journal.recordMove(index, from, to);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // Groups the moves of each level by target directory. A sequence is never split, its moves depend on each other.
+    private DirectoryBatch[][] groupByDirectory(final List<RenameOperation> operations,
+                                                final RenameSchedule schedule) {
+        HashMap<Object, FileStoreLimiter> devices = new HashMap<>();
+        List<LinkedHashMap<File, DirectoryBatch>> levels = new ArrayList<>();
+        for (int i = 0; i < schedule.getNbLevels(); i++) {
+            levels.add(new LinkedHashMap<>());
+        }
+        List<int[]> sequences = schedule.getSequences();
+        for (int s = 0; s < sequences.size(); s++) {
+            int level = schedule.getLevel(s);
+            if (level >= 0) {
+                int[] sequence = sequences.get(s);
+                File directory = operations.get(RenameSchedule.indexOf(sequence[0])).getTarget().getParentFile();
+                DirectoryBatch batch = levels.get(level).computeIfAbsent(directory,
+                        d -> new DirectoryBatch(d, limiterOf(d, devices)));
+                batch.sequenceStarts.add(batch.steps.size());
+                batch.steps.addAll(sequence);
+                for (int step : sequence) {
+                    if (RenameSchedule.kindOf(step) != RenameSchedule.TO_TEMP) {
+                        batch.nbMoves++;
+                    }
+                }
+            }
+        }
+        DirectoryBatch[][] batches = new DirectoryBatch[levels.size()][];
+        for (int i = 0; i < batches.length; i++) {
+            batches[i] = levels.get(i).values().toArray(new DirectoryBatch[0]);
+        }
+        return batches;
+    }
+
+    /*
+     * Limiter of the file store holding the directory, or of its nearest existing ancestor when the directory is yet
+     * to be created. Stores are looked up once per device : finding the FileStore of a path reads the mount table.
+     */
+    private FileStoreLimiter limiterOf(final File directory, final HashMap<Object, FileStoreLimiter> devices) {
+        if (directory == null) {
+            return this.unknownStore;
+        }
+        File existing = directory;
+        while (existing.getParentFile() != null && !existing.exists()) {
+            existing = existing.getParentFile();
+        }
+        Path path = existing.toPath();
+        try {
+            Object device = UNIX_ATTRIBUTES ? Files.getAttribute(path, "unix:dev") : path.getRoot();
+            FileStoreLimiter limiter = device != null ? devices.get(device) : null;
+            if (limiter == null) {
+                FileStore store = Files.getFileStore(path);
+                limiter = this.limiters.computeIfAbsent(store, s -> new FileStoreLimiter(s.toString(),
+                        this.parallelism));
+                if (device != null) {
+                    devices.put(device, limiter);
+                }
+            }
+            return limiter;
+        } catch (IOException | UnsupportedOperationException | SecurityException e) {
+            this.logger.warn("Cannot find the file store of " + directory + " : " + e);
+            return this.unknownStore;
+        }
+    }
+
+    private static final class DirectoryBatch {
+
+        private final File directory;
+        private final IntList steps;
+        // Offsets of the sequences in the steps, the batch can only be cancelled there
+        private final IntList sequenceStarts;
+        // Directories whose entries were changed by the moves of the batch
+        private final LinkedHashSet<File> changedDirectories;
+        private final FileStoreLimiter limiter;
+        private int nbMoves;
+        // Index of the first operation of the plan in the batch of the journal
+        private int journalOffset;
+
+        private DirectoryBatch(final File directory, final FileStoreLimiter limiter) {
+            this.directory = directory;
+            this.limiter = limiter;
+            this.steps = new IntList();
+            this.sequenceStarts = new IntList();
+            this.changedDirectories = new LinkedHashSet<>();
+            this.nbMoves = 0;
+            this.journalOffset = 0;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + this.directory + ", Steps=" + this.steps.size() + ", Store=" + this.limiter + "]";
+        }
+    }
+
+    private static final class ScheduledBatch {
+
+        private final RenameSchedule schedule;
+        private final DirectoryBatch[][] levels;
+        private final int nbThreads;
+        // False when the plan is part of a batch opened by beginBatch
+        private final boolean ownBatch;
+
+        private ScheduledBatch(final RenameSchedule schedule, final DirectoryBatch[][] levels, final int nbThreads,
+                               final boolean ownBatch) {
+            this.schedule = schedule;
+            this.levels = levels;
+            this.nbThreads = nbThreads;
+            this.ownBatch = ownBatch;
+        }
+    }
+
+    private static final class WorkerThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            Thread thread = new Thread(r, "rename-worker-" + this.count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * MIT License
+ *
+ * Copyright 2020 Julien LE SAUCE
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jls.filerenamer.rename;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/*
+ * Append-only journal of the last rename batch, written through a memory-mapped file. A batch may apply several
+ * plans : every scheduled move of a plan, and the temporary name of each file opening a cycle, is written and forced to
+ * disk before its first file is touched, then each completed move is appended and the journal is forced every
+ * FORCE_INTERVAL moves and at the end of the batch. Plans run one after the other, so the records of a plan follow
+ * its PLAN record and it can be read back on its own.
+ *
+ * Record layout : [int length][int crc][byte type][int index][int n][n bytes from][int m][m bytes to]
+ * A record is only made visible by writing its length last, after the zero length that terminates the journal,
+ * so a torn write is never read back. A length of -1 means the rest of the region is unused.
+ */
+public final class RenameJournal implements Closeable {
+
+    public static final Path DEFAULT_PATH = Paths.get(System.getProperty("filerenamer.journal",
+            Paths.get(System.getProperty("user.home"), ".filerenamer", "rename.journal").toString()));
+
+    static final byte BEGIN = 1;
+    static final byte PLANNED = 2;
+    static final byte MOVED = 3;
+    static final byte END = 4;
+    static final byte TEMP = 5;
+    static final byte PLAN = 6;
+
+    private static final int REGION_SIZE = 16 * 1024 * 1024;
+    private static final int HEADER_SIZE = 8;
+    private static final int END_OF_REGION = -1;
+    private static final int FORCE_INTERVAL = 256;
+
+    private final Path path;
+    private FileChannel channel;
+    private MappedByteBuffer region;
+    private long regionStart;
+    private int unforcedMoves;
+
+    public RenameJournal(final Path path) {
+        this.path = path;
+    }
+
+    public Path getPath() {
+        return this.path;
+    }
+
+    synchronized void begin() throws IOException {
+        if (this.channel == null) {
+            Files.createDirectories(this.path.getParent());
+            this.channel = FileChannel.open(this.path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+        }
+        // The journal only keeps the last batch : it is overwritten from the start instead of truncated, since
+        // a mapped file cannot be truncated on every platform
+        mapRegion(0);
+        append(BEGIN, 0, "", "");
+        this.unforcedMoves = 0;
+    }
+
+    // The operations of the plan are numbered from offset in the batch. Only the scheduled operations are journaled,
+    // so an operation the planner refused is never replayed
+    synchronized void plan(final List<RenameOperation> operations, final RenameSchedule schedule, final int offset)
+            throws IOException {
+        append(PLAN, offset, "", "");
+        List<int[]> sequences = schedule.getSequences();
+        for (int s = 0; s < sequences.size(); s++) {
+            if (schedule.getLevel(s) < 0) {
+                continue;
+            }
+            for (int step : sequences.get(s)) {
+                int index = RenameSchedule.indexOf(step);
+                int kind = RenameSchedule.kindOf(step);
+                if (kind != RenameSchedule.FROM_TEMP) {
+                    RenameOperation operation = operations.get(index);
+                    append(PLANNED, offset + index, operation.getSource().getPath(), operation.getTarget().getPath());
+                }
+                if (kind == RenameSchedule.TO_TEMP) {
+                    append(TEMP, offset + index, schedule.getTempFile(index).getPath(), "");
+                }
+            }
+        }
+        this.region.force();
+        this.unforcedMoves = 0;
+    }
+
+    synchronized void recordMove(final int index, final File from, final File to) throws IOException {
+        append(MOVED, index, from.getPath(), to.getPath());
+        if (++this.unforcedMoves >= FORCE_INTERVAL) {
+            this.region.force();
+            this.unforcedMoves = 0;
+        }
+    }
+
+    synchronized void end() throws IOException {
+        append(END, 0, "", "");
+        this.region.force();
+        this.unforcedMoves = 0;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (this.channel != null) {
+            this.region.force();
+            this.channel.close();
+            this.channel = null;
+            this.region = null;
+        }
+    }
+
+    private void mapRegion(final long start) throws IOException {
+        this.region = this.channel.map(FileChannel.MapMode.READ_WRITE, start, REGION_SIZE);
+        this.regionStart = start;
+    }
+
+    private void append(final byte type, final int index, final String from, final String to) throws IOException {
+        byte[] fromBytes = from.getBytes(StandardCharsets.UTF_8);
+        byte[] toBytes = to.getBytes(StandardCharsets.UTF_8);
+        int length = 1 + 4 + 4 + fromBytes.length + 4 + toBytes.length;
+        if (HEADER_SIZE + length + 4 > REGION_SIZE) {
+            throw new IOException("Journal record too large : " + length + " bytes");
+        }
+        MappedByteBuffer previous = null;
+        int previousPosition = 0;
+        if (this.region.remaining() < HEADER_SIZE + length + 4) {
+            previous = this.region;
+            previousPosition = this.region.position();
+            this.region.force();
+            mapRegion(this.regionStart + REGION_SIZE);
+        }
+
+        int start = this.region.position();
+        this.region.position(start + HEADER_SIZE);
+        this.region.put(type).putInt(index);
+        this.region.putInt(fromBytes.length).put(fromBytes);
+        this.region.putInt(toBytes.length).put(toBytes);
+        int end = this.region.position();
+        this.region.putInt(end, 0);
+        this.region.putInt(start + 4, checksum(this.region, start + HEADER_SIZE, length));
+        this.region.putInt(start, length);
+
+        // The previous region is only closed once the record is readable from the new one
+        if (previous != null && previous.capacity() - previousPosition >= 4) {
+            previous.putInt(previousPosition, END_OF_REGION);
+        }
+    }
+
+    private static int checksum(final ByteBuffer buffer, final int offset, final int length) {
+        ByteBuffer body = buffer.duplicate();
+        body.limit(offset + length).position(offset);
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+
+    public static JournalBatch readLastBatch(final Path path) throws IOException {
+        JournalBatch batch = new JournalBatch(path);
+        if (Files.isRegularFile(path)) {
+            batch.setEnd(read(path, 0, batch::add));
+        }
+        return batch;
+    }
+
+    // Records of the plan whose PLAN record is at the given position, of a batch complete or not
+    static JournalPlan readPlan(final Path path, final long position, final boolean complete) throws IOException {
+        JournalPlan[] plan = {null};
+        read(path, position, (start, type, index, from, to) -> {
+            if (plan[0] == null) {
+                plan[0] = new JournalPlan(index, complete);
+                return true;
+            }
+            if (type == PLAN || type == BEGIN || type == END) {
+                return false;
+            }
+            plan[0].add(type, index, from, to);
+            return true;
+        });
+        return plan[0];
+    }
+
+    /*
+     * Reads the records from the given position while the visitor accepts them, and returns the position that
+     * follows the last accepted record.
+     */
+    private static long read(final Path path, final long position, final RecordVisitor visitor) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long start = position - position % REGION_SIZE;
+            int offset = (int) (position - start);
+            long[] end = {position};
+            for (; start < size; start += REGION_SIZE) {
+                ByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(REGION_SIZE,
+                        size - start));
+                region.position(offset);
+                offset = 0;
+                if (!readRegion(region, start, visitor, end)) {
+                    break;
+                }
+            }
+            return end[0];
+        }
+    }
+
+    // Returns true if the journal goes on in the next region
+    private static boolean readRegion(final ByteBuffer region, final long regionStart, final RecordVisitor visitor,
+                                      final long[] end) {
+        while (region.remaining() >= 4) {
+            int start = region.position();
+            int length = region.getInt();
+            if (length == END_OF_REGION) {
+                return true;
+            }
+            if (length <= 0 || region.remaining() < 4 + length) {
+                return false;
+            }
+            int crc = region.getInt();
+            if (crc != checksum(region, start + HEADER_SIZE, length)) {
+                return false;
+            }
+            byte type = region.get();
+            int index = region.getInt();
+            String from = readString(region);
+            String to = readString(region);
+            if (!visitor.visit(regionStart + start, type, index, from, to)) {
+                return false;
+            }
+            end[0] = regionStart + region.position();
+        }
+        return false;
+    }
+
+    private static String readString(final ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Receives the records read from a journal, returns false to stop reading
+    interface RecordVisitor {
+
+        boolean visit(long position, byte type, int index, String from, String to);
+    }
+}
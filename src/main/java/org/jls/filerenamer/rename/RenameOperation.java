@@ -0,0 +1,98 @@
+/*
+ * MIT License
+ *
+ * Copyright 2020 Julien LE SAUCE
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jls.filerenamer.rename;
+
+import java.io.File;
+
+import org.jls.filerenamer.util.FileInfo;
+
+public final class RenameOperation {
+
+    private final FileInfo fileInfo;
+    private final File source;
+    private final File target;
+
+    // A new name containing separators moves the file to another directory, e.g. 2020/05/name.jpg
+    public RenameOperation(final FileInfo fileInfo, final String newName) {
+        this(fileInfo, fileInfo.getFile(), resolve(fileInfo.getFile().getParentFile(), newName));
+    }
+
+    public RenameOperation(final FileInfo fileInfo, final File target) {
+        this(fileInfo, fileInfo.getFile(), target);
+    }
+
+    private RenameOperation(final FileInfo fileInfo, final File source, final File target) {
+        this.fileInfo = fileInfo;
+        this.source = source;
+        this.target = target;
+    }
+
+    private static File resolve(final File directory, final String newName) {
+        File target = new File(directory, newName);
+        if (newName.indexOf('/') >= 0 || newName.indexOf(File.separatorChar) >= 0) {
+            // Targets are compared by path, so the path must not contain "." or ".."
+            return target.toPath().normalize().toFile();
+        }
+        return target;
+    }
+
+    public RenameOperation withNewName(final String newName) {
+        return new RenameOperation(this.fileInfo, this.source, new File(this.target.getParentFile(), newName));
+    }
+
+    public FileInfo getFileInfo() {
+        return this.fileInfo;
+    }
+
+    public File getSource() {
+        return this.source;
+    }
+
+    public File getTarget() {
+        return this.target;
+    }
+
+    public String getNewName() {
+        return this.target.getName();
+    }
+
+    // Path of the target relative to the directory of the source
+    public String getRelativeTarget() {
+        File directory = this.source.getParentFile();
+        if (directory == null || directory.equals(this.target.getParentFile())) {
+            return this.target.getName();
+        }
+        return directory.toPath().relativize(this.target.toPath()).toString();
+    }
+
+    // Paths are compared exactly, since File.equals ignores case on Windows and a case-only rename is a rename
+    public boolean isUnchanged() {
+        return this.source.getPath().equals(this.target.getPath());
+    }
+
+    @Override
+    public String toString() {
+        return "[" + this.source + " -> " + this.target + "]";
+    }
+}
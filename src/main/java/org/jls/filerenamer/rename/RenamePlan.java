@@ -0,0 +1,62 @@
+/*
+ * MIT License
+ *
+ * Copyright 2020 Julien LE SAUCE
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jls.filerenamer.rename;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.jls.filerenamer.util.FileInfo;
+
+public final class RenamePlan {
+
+    private final String pattern;
+    private final List<FileInfo> selection;
+    private final List<RenameOperation> operations;
+
+    public RenamePlan(final String pattern, final List<FileInfo> selection, final RenameOperation[] operations) {
+        this.pattern = pattern;
+        this.selection = selection;
+        this.operations = Collections.unmodifiableList(Arrays.asList(operations));
+    }
+
+    public List<RenameOperation> getOperations() {
+        return this.operations;
+    }
+
+    public int size() {
+        return this.operations.size();
+    }
+
+    // A plan only matches what the user saw if it was computed from the same pattern on the same selection
+    public boolean isPlanOf(final String pattern, final List<FileInfo> selection) {
+        return this.pattern.equals(pattern) && this.selection == selection;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + getClass().getSimpleName() + ", Pattern=" + this.pattern + ", Operations="
+                + this.operations.size() + "]";
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * MIT License
+ *
+ * Copyright 2020 Julien LE SAUCE
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jls.filerenamer.rename;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.jls.filerenamer.util.FileInfo;
+import org.jls.filerenamer.util.TaskProgress;
+
+public final class RenamePlanBuilder {
+
+    private static final int CHUNK_SIZE = 1024;
+
+    private RenamePlanBuilder() {
+    }
+
+    // Files are numbered in the given order, which is the display order of the selection. Without generator, only
+    // the extension is changed. A null extension keeps the extension of each file.
+    // A cancelled build stops at the next chunk with a CancellationException, some files may have a new name
+    public static RenamePlan build(final List<FileInfo> selection, final List<FileInfo> files,
+                                   final NameGenerator generator, final String extension, final TagContext context,
+                                   final CollisionMode collisionMode, final TaskProgress progress) {
+        RenameOperation[] operations = new RenameOperation[files.size()];
+        int nbChunks = (files.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        // Each chunk renders its files with its own builder, so chunks can run on any worker thread
+        IntStream.range(0, nbChunks).parallel().forEach(chunk -> {
+            progress.checkCancelled();
+            StringBuilder filename = new StringBuilder();
+            int end = Math.min(files.size(), (chunk + 1) * CHUNK_SIZE);
+            for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+                FileInfo file = files.get(i);
+                String newName = newName(filename, file, i, generator, extension, context);
+                if (newName != null) {
+                    operations[i] = new RenameOperation(file, newName);
+                    file.setNewName(operations[i].getRelativeTarget());
+                } else {
+                    operations[i] = new RenameOperation(file, file.getFile());
+                    file.setNewName("");
+                }
+            }
+            progress.advance(end - chunk * CHUNK_SIZE);
+        });
+        progress.checkCancelled();
+        CollisionResolver.resolve(operations, collisionMode);
+        return new RenamePlan(describe(generator, extension), selection, operations);
+    }
+
+    // New name of the file, or null if it keeps its name
+    static String newName(final StringBuilder filename, final FileInfo file, final int index,
+                          final NameGenerator generator, final String extension, final TagContext context) {
+        filename.setLength(0);
+        boolean renamed;
+        if (generator == null) {
+            renamed = !file.getExtension().equals(extension);
+            if (renamed) {
+                filename.append(file.getBaseName());
+            }
+        } else {
+            renamed = generator.appendTo(filename, file, index, context);
+        }
+        // An empty name would designate the parent directory
+        if (!renamed || filename.length() == 0) {
+            return null;
+        }
+        String newExtension = extension != null ? extension : file.getExtension();
+        if (!newExtension.isEmpty()) {
+            filename.append('.').append(newExtension);
+        }
+        return filename.toString();
+    }
+
+    public static String describe(final NameGenerator generator, final String extension) {
+        String description = generator != null ? generator.getDescription() : "";
+        return extension != null ? description + " (Extension=" + extension + ")" : description;
+    }
+}
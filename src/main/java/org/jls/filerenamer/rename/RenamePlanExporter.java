@@ -0,0 +1,146 @@
+/*
+ * MIT License
+ *
+ * Copyright 2020 Julien LE SAUCE
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jls.filerenamer.rename;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * Writes the old -> new paths of a rename plan to a CSV or NDJSON file. Each row is encoded from the operations of
+ * the plan into a single direct buffer, which is written to the channel whenever it is full, so the export adds no
+ * copy of the plan. The plan itself is held in memory : only the previewed selection can be exported, not the
+ * spilled plan of a tree rename.
+ */
+public final class RenamePlanExporter {
+
+    public enum Format {
+        CSV, NDJSON;
+
+        // .ndjson and .jsonl files are written as NDJSON, any other file as CSV
+        public static Format of(final Path path) {
+            String name = path.getFileName().toString().toLowerCase();
+            return name.endsWith(".ndjson") || name.endsWith(".jsonl") ? NDJSON : CSV;
+        }
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String CSV_HEADER = "source,target,status\n";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private RenamePlanExporter() {
+    }
+
+    // Returns the number of exported operations
+    public static int export(final RenamePlan plan, final Path path, final Format format) throws IOException {
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        StringBuilder row = new StringBuilder();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            if (format == Format.CSV) {
+                row.append(CSV_HEADER);
+                encode(row, encoder, buffer, channel);
+            }
+            for (RenameOperation operation : plan.getOperations()) {
+                row.setLength(0);
+                String status = operation.isUnchanged() ? "unchanged" : "renamed";
+                if (format == Format.CSV) {
+                    appendCsv(row, operation.getSource().getPath()).append(',');
+                    appendCsv(row, operation.getTarget().getPath()).append(',').append(status).append('\n');
+                } else {
+                    row.append("{\"source\":");
+                    appendJson(row, operation.getSource().getPath()).append(",\"target\":");
+                    appendJson(row, operation.getTarget().getPath()).append(",\"status\":\"").append(status)
+                            .append("\"}\n");
+                }
+                encode(row, encoder, buffer, channel);
+            }
+            encoder.encode(CharBuffer.allocate(0), buffer, true);
+            encoder.flush(buffer);
+            flush(buffer, channel);
+        }
+        return plan.size();
+    }
+
+    private static void encode(final CharSequence row, final CharsetEncoder encoder, final ByteBuffer buffer,
+                               final FileChannel channel) throws IOException {
+        CharBuffer chars = CharBuffer.wrap(row);
+        while (encoder.encode(chars, buffer, false).isOverflow()) {
+            flush(buffer, channel);
+        }
+    }
+
+    private static void flush(final ByteBuffer buffer, final FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // Fields containing a separator, a quote or a line break are quoted, "" escaping a quote
+    private static StringBuilder appendCsv(final StringBuilder sb, final String field) {
+        boolean quoted = false;
+        for (int i = 0; i < field.length() && !quoted; i++) {
+            char c = field.charAt(i);
+            quoted = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quoted) {
+            return sb.append(field);
+        }
+        sb.append('"');
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == '"') {
+                sb.append('"');
+            }
+            sb.append(c);
+        }
+        return sb.append('"');
+    }
+
+    private static StringBuilder appendJson(final StringBuilder sb, final String value) {
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"');
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * MIT License
+ *
+ * Copyright 2020 Julien LE SAUCE
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jls.filerenamer.rename;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+
+/*
+ * Orders the operations of a plan so that no move overwrites a file that is itself renamed by the same batch.
+ * Sources and targets are indexed once, so the dependency of each operation is found in O(1): an operation
+ * must wait for the operation that renames its target away. Since targets are unique, the dependencies form
+ * disjoint chains and cycles. Chains are run from their end, and each cycle is opened by moving one file to a
+ * temporary name first and closed by moving it to its target last, so no file is moved more than twice.
+ */
+final class RenamePlanner {
+
+    private static final String TEMP_PREFIX = ".filerenamer-";
+
+    private RenamePlanner() {
+    }
+
+    static RenameSchedule schedule(final List<RenameOperation> operations, final RenameReport report) {
+        int n = operations.size();
+        HashMap<File, Integer> sources = new HashMap<>(capacity(n));
+        HashMap<File, Integer> targets = new HashMap<>(capacity(n));
+        boolean[] active = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            RenameOperation operation = operations.get(i);
+            if (operation.isUnchanged()) {
+                report.set(i, RenameOutcome.SKIPPED, OutcomeReason.NAME_UNCHANGED);
+            } else if (!operation.getSource().equals(operation.getFileInfo().getFile())) {
+                report.set(i, RenameOutcome.SKIPPED, OutcomeReason.FILE_CHANGED);
+            } else if (targets.putIfAbsent(operation.getTarget(), i) != null) {
+                report.set(i, RenameOutcome.FAILED, OutcomeReason.DUPLICATE_TARGET);
+            } else {
+                sources.put(operation.getSource(), i);
+                active[i] = true;
+            }
+        }
+
+        int[] next = new int[n];
+        boolean[] blocking = new boolean[n];
+        Arrays.fill(next, -1);
+        for (int i = 0; i < n; i++) {
+            if (active[i]) {
+                Integer blocker = sources.get(operations.get(i).getTarget());
+                if (blocker != null) {
+                    next[i] = blocker;
+                    blocking[blocker] = true;
+                }
+            }
+        }
+
+        RenameSchedule schedule = new RenameSchedule();
+        boolean[] visited = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            if (active[i] && !blocking[i]) {
+                schedule.addSequence(chain(i, next, visited));
+            }
+        }
+        String token = UUID.randomUUID().toString().substring(0, 8);
+        for (int i = 0; i < n; i++) {
+            if (active[i] && !visited[i]) {
+                File source = operations.get(i).getSource();
+                schedule.setTempFile(i, new File(source.getParentFile(), TEMP_PREFIX + token + "-" + i + ".tmp"));
+                schedule.addSequence(cycle(i, next, visited));
+            }
+        }
+        DepthOrder.apply(operations, sources, targets, schedule, report);
+        return schedule;
+    }
+
+    // Head -> ... -> tail, where each operation targets the source of the next one: the tail runs first
+    private static int[] chain(final int head, final int[] next, final boolean[] visited) {
+        int length = 0;
+        for (int i = head; i >= 0; i = next[i]) {
+            length++;
+        }
+        int[] steps = new int[length];
+        int pos = length;
+        for (int i = head; i >= 0; i = next[i]) {
+            visited[i] = true;
+            steps[--pos] = RenameSchedule.step(i, RenameSchedule.MOVE);
+        }
+        return steps;
+    }
+
+    private static int[] cycle(final int start, final int[] next, final boolean[] visited) {
+        int length = 1;
+        for (int i = next[start]; i != start; i = next[i]) {
+            length++;
+        }
+        int[] steps = new int[length + 1];
+        steps[0] = RenameSchedule.step(start, RenameSchedule.TO_TEMP);
+        steps[length] = RenameSchedule.step(start, RenameSchedule.FROM_TEMP);
+        visited[start] = true;
+        int pos = length;
+        for (int i = next[start]; i != start; i = next[i]) {
+            visited[i] = true;
+            steps[--pos] = RenameSchedule.step(i, RenameSchedule.MOVE);
+        }
+        return steps;
+    }
+
+    private static int capacity(final int nbEntries) {
+        return (int) Math.min(Integer.MAX_VALUE, nbEntries * 4L / 3 + 1);
+    }
+}
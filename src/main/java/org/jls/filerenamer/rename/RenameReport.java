@@ -0,0 +1,141 @@
+/*
+ * MIT License
+ *
+ * Copyright 2020 Julien LE SAUCE
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jls.filerenamer.rename;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Outcome of each operation of a batch, stored as one byte for the outcome and one for its reason. The optional
+ * details, like the message of an I/O error, are shared between the operations which have the same one, so a batch
+ * with many failures costs a few bytes per file instead of a message or an exception per file.
+ */
+public final class RenameReport {
+
+    private static final RenameOutcome[] OUTCOMES = RenameOutcome.values();
+    private static final OutcomeReason[] REASONS = OutcomeReason.values();
+
+    // PENDING is the first outcome, so the operations of a new report are all pending
+    private final byte[] outcomes;
+    // Ordinal of the reason plus one, 0 when there is no reason
+    private final byte[] reasons;
+    private final HashMap<String, Integer> detailIds;
+    private final ArrayList<String> details;
+    private final LongAdder nbRetries;
+    // Id of the detail of each operation plus one, only allocated with the first detail
+    private volatile int[] detailOf;
+
+    public RenameReport(final int nbOperations) {
+        this.outcomes = new byte[nbOperations];
+        this.reasons = new byte[nbOperations];
+        this.detailIds = new HashMap<>();
+        this.details = new ArrayList<>();
+        this.nbRetries = new LongAdder();
+        this.detailOf = null;
+    }
+
+    // Each operation index is written by a single worker, so no further synchronization is needed
+    void set(final int index, final RenameOutcome outcome, final OutcomeReason reason) {
+        this.outcomes[index] = (byte) outcome.ordinal();
+        this.reasons[index] = (byte) (reason != null ? reason.ordinal() + 1 : 0);
+        int[] ids = this.detailOf;
+        if (ids != null) {
+            ids[index] = 0;
+        }
+    }
+
+    void set(final int index, final RenameOutcome outcome, final OutcomeReason reason, final String detail) {
+        set(index, outcome, reason);
+        if (detail != null) {
+            setDetail(index, detail);
+        }
+    }
+
+    private synchronized void setDetail(final int index, final String detail) {
+        if (this.detailOf == null) {
+            this.detailOf = new int[this.outcomes.length];
+        }
+        Integer id = this.detailIds.get(detail);
+        if (id == null) {
+            this.details.add(detail);
+            id = this.details.size();
+            this.detailIds.put(detail, id);
+        }
+        this.detailOf[index] = id;
+    }
+
+    void addRetry() {
+        this.nbRetries.increment();
+    }
+
+    public int size() {
+        return this.outcomes.length;
+    }
+
+    public RenameOutcome getOutcome(final int index) {
+        return OUTCOMES[this.outcomes[index]];
+    }
+
+    public OutcomeReason getOutcomeReason(final int index) {
+        int reason = this.reasons[index];
+        return reason > 0 ? REASONS[reason - 1] : null;
+    }
+
+    public synchronized String getDetail(final int index) {
+        int id = this.detailOf != null ? this.detailOf[index] : 0;
+        return id > 0 ? this.details.get(id - 1) : null;
+    }
+
+    public String getReason(final int index) {
+        OutcomeReason reason = getOutcomeReason(index);
+        if (reason == null) {
+            return null;
+        }
+        String detail = getDetail(index);
+        return detail != null ? reason.getLabel() + " (" + detail + ")" : reason.getLabel();
+    }
+
+    // Transient errors which were retried, whether the retry succeeded or not
+    public long getNbRetries() {
+        return this.nbRetries.sum();
+    }
+
+    public int count(final RenameOutcome outcome) {
+        int count = 0;
+        for (byte value : this.outcomes) {
+            if (value == outcome.ordinal()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + getClass().getSimpleName() + ", Succeeded=" + count(RenameOutcome.SUCCEEDED) + ", Skipped="
+                + count(RenameOutcome.SKIPPED) + ", Failed=" + count(RenameOutcome.FAILED) + ", Pending="
+                + count(RenameOutcome.PENDING) + ", Retries=" + getNbRetries() + "]";
+    }
+}
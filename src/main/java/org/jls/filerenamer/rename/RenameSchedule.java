@@ -0,0 +1,112 @@
+/*
+ * MIT License
+ *
+ * Copyright 2020 Julien LE SAUCE
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jls.filerenamer.rename;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+final class RenameSchedule {
+
+    static final int MOVE = 0;
+    static final int TO_TEMP = 1;
+    static final int FROM_TEMP = 2;
+
+    private final List<int[]> sequences;
+    private final HashMap<Integer, File> tempFiles;
+    // Operations renamed inside the directory of another operation, by index of that operation
+    private final HashMap<Integer, IntList> children;
+    // Level of each sequence, null when no operation depends on another directory rename
+    private int[] levels;
+    private int nbLevels;
+
+    RenameSchedule() {
+        this.sequences = new ArrayList<>();
+        this.tempFiles = new HashMap<>();
+        this.children = new HashMap<>();
+        this.levels = null;
+        this.nbLevels = 1;
+    }
+
+    // A step packs the operation index and the kind of move in a single int
+    static int step(final int index, final int kind) {
+        return index << 2 | kind;
+    }
+
+    static int indexOf(final int step) {
+        return step >>> 2;
+    }
+
+    static int kindOf(final int step) {
+        return step & 3;
+    }
+
+    void addSequence(final int[] steps) {
+        this.sequences.add(steps);
+    }
+
+    void setTempFile(final int index, final File tempFile) {
+        this.tempFiles.put(index, tempFile);
+    }
+
+    List<int[]> getSequences() {
+        return this.sequences;
+    }
+
+    File getTempFile(final int index) {
+        return this.tempFiles.get(index);
+    }
+
+    Map<Integer, File> getTempFiles() {
+        return this.tempFiles;
+    }
+
+    int getNbTempFiles() {
+        return this.tempFiles.size();
+    }
+
+    void addChild(final int parent, final int child) {
+        this.children.computeIfAbsent(parent, p -> new IntList()).add(child);
+    }
+
+    IntList getChildren(final int index) {
+        return this.children.isEmpty() ? null : this.children.get(index);
+    }
+
+    void setLevels(final int[] levels, final int nbLevels) {
+        this.levels = levels;
+        this.nbLevels = nbLevels;
+    }
+
+    // Sequences of a level run once all the sequences of the previous levels are done, -1 if it must not run
+    int getLevel(final int sequence) {
+        return this.levels == null ? 0 : this.levels[sequence];
+    }
+
+    int getNbLevels() {
+        return this.nbLevels;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * MIT License
+ *
+ * Copyright 2020 Julien LE SAUCE
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jls.filerenamer.rename;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Outcome counts of one or several rename plans, with the first failures only, so that a batch applied as a
+ * stream of plans can be summed up without keeping their reports.
+ */
+public final class RenameSummary {
+
+    private final int maxFailures;
+    private final long[] counts;
+    private final EnumMap<OutcomeReason, Long> failures;
+    private final ArrayList<String> firstFailures;
+    private long nbRetries;
+
+    public RenameSummary(final int maxFailures) {
+        this.maxFailures = maxFailures;
+        this.counts = new long[RenameOutcome.values().length];
+        this.failures = new EnumMap<>(OutcomeReason.class);
+        this.firstFailures = new ArrayList<>();
+        this.nbRetries = 0;
+    }
+
+    public synchronized void add(final RenamePlan plan, final RenameReport report) {
+        for (int i = 0; i < report.size(); i++) {
+            RenameOutcome outcome = report.getOutcome(i);
+            this.counts[outcome.ordinal()]++;
+            if (outcome == RenameOutcome.FAILED) {
+                OutcomeReason reason = report.getOutcomeReason(i);
+                if (reason != null) {
+                    this.failures.merge(reason, 1L, Long::sum);
+                }
+                if (this.firstFailures.size() < this.maxFailures) {
+                    this.firstFailures.add(plan.getOperations().get(i).getSource().getName() + " : "
+                            + report.getReason(i));
+                }
+            }
+        }
+        this.nbRetries += report.getNbRetries();
+    }
+
+    public synchronized long count(final RenameOutcome outcome) {
+        return this.counts[outcome.ordinal()];
+    }
+
+    public synchronized Map<OutcomeReason, Long> getFailures() {
+        return Collections.unmodifiableMap(new EnumMap<>(this.failures));
+    }
+
+    // "name : reason" of the first failed files
+    public synchronized List<String> getFirstFailures() {
+        return Collections.unmodifiableList(new ArrayList<>(this.firstFailures));
+    }
+
+    public synchronized long getNbRetries() {
+        return this.nbRetries;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "[" + getClass().getSimpleName() + ", Succeeded=" + count(RenameOutcome.SUCCEEDED) + ", Skipped="
+                + count(RenameOutcome.SKIPPED) + ", Failed=" + count(RenameOutcome.FAILED) + ", Pending="
+                + count(RenameOutcome.PENDING) + ", Retries=" + this.nbRetries + "]";
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * MIT License
+ *
+ * Copyright 2020 Julien LE SAUCE
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jls.filerenamer.rename;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.jls.filerenamer.util.FileInfo;
+import org.jls.filerenamer.util.MalformedTagException;
+import org.jls.filerenamer.util.Tag;
+
+public final class RenameTemplate implements NameGenerator {
+
+    private static final Pattern TAG_PATTERN = Pattern.compile("\\{(.*?)}");
+    private static final Pattern COUNTER_PATTERN = Pattern.compile("inc=%0?(\\d*)d(?:,(\\d+))?",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern LETTER_PATTERN = Pattern.compile("let=%(\\d*)c(?:,(\\d+))?",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern GROUP_PATTERN = Pattern.compile("g(\\d+)", Pattern.CASE_INSENSITIVE);
+    private static final int MAX_CACHED_TEMPLATES = 64;
+    private static final int MAX_COUNTER_WIDTH = 18;
+    private static final ConcurrentHashMap<List<String>, RenameTemplate> CACHE = new ConcurrentHashMap<>();
+
+    private final String pattern;
+    private final SourceMatcher source;
+    private final Segment[] segments;
+
+    private RenameTemplate(final String pattern, final SourceMatcher source, final Segment[] segments) {
+        this.pattern = pattern;
+        this.source = source;
+        this.segments = segments;
+    }
+
+    // The source regex is matched against the base name of each file, and its groups are referenced as {g1}, {g2}...
+    public static RenameTemplate compile(final String pattern, final String sourceRegex)
+            throws MalformedTagException {
+        List<String> key = List.of(pattern, sourceRegex);
+        RenameTemplate template = CACHE.get(key);
+        if (template == null) {
+            template = parse(pattern, compileSource(sourceRegex));
+            if (CACHE.size() >= MAX_CACHED_TEMPLATES) {
+                CACHE.clear();
+            }
+            CACHE.putIfAbsent(key, template);
+        }
+        return template;
+    }
+
+    private static SourceMatcher compileSource(final String sourceRegex) throws MalformedTagException {
+        if (sourceRegex.isEmpty()) {
+            return null;
+        }
+        try {
+            return new SourceMatcher(Pattern.compile(sourceRegex));
+        } catch (PatternSyntaxException e) {
+            throw new MalformedTagException("Invalid source regex : " + sourceRegex, e);
+        }
+    }
+
+    private static RenameTemplate parse(final String pattern, final SourceMatcher source)
+            throws MalformedTagException {
+        Matcher m = TAG_PATTERN.matcher(pattern);
+        ArrayList<Segment> segments = new ArrayList<>();
+        int nbTags = 0;
+        int end = 0;
+        while (m.find()) {
+            String tagStr = m.group(1);
+            if (tagStr.contains("{") || tagStr.contains("}")) {
+                throw new MalformedTagException("Nested brackets detected : " + tagStr);
+            }
+            Segment segment = parseTag(tagStr, source);
+            if (m.start() > end) {
+                segments.add(new LiteralSegment(pattern.substring(end, m.start())));
+            }
+            segments.add(segment);
+            end = m.end();
+            nbTags++;
+        }
+
+        if (nbTags == 0 && (pattern.contains("{") || pattern.contains("}"))) {
+            throw new MalformedTagException("Open bracket detected : " + pattern);
+        }
+        if (end < pattern.length()) {
+            segments.add(new LiteralSegment(pattern.substring(end)));
+        }
+        return new RenameTemplate(pattern, source, segments.toArray(new Segment[0]));
+    }
+
+    private static Segment parseTag(final String tagStr, final SourceMatcher source) throws MalformedTagException {
+        // Modifiers are applied from left to right : {file_name:ascii:lower}
+        int colon = tagStr.lastIndexOf(':');
+        if (colon >= 0) {
+            String modifier = tagStr.substring(colon + 1);
+            try {
+                return new ModifiedSegment(parseTag(tagStr.substring(0, colon), source),
+                        TextModifier.valueOf(modifier.toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                throw new MalformedTagException("Unknown modifier : " + modifier, e);
+            }
+        }
+        Matcher group = GROUP_PATTERN.matcher(tagStr);
+        if (group.matches()) {
+            if (source == null) {
+                throw new MalformedTagException("Group reference without source regex : " + tagStr);
+            }
+            int n = Integer.parseInt(group.group(1));
+            if (n > source.groupCount()) {
+                throw new MalformedTagException("Source regex has no group " + n + " : " + source.getRegex());
+            }
+            return new GroupSegment(source, n);
+        }
+        Matcher counter = COUNTER_PATTERN.matcher(tagStr);
+        if (counter.matches()) {
+            try {
+                int width = counter.group(1).isEmpty() ? 1 : Integer.parseInt(counter.group(1));
+                long start = counter.group(2) != null ? Long.parseLong(counter.group(2)) : 0;
+                if (width > MAX_COUNTER_WIDTH) {
+                    throw new MalformedTagException("Counter width cannot exceed " + MAX_COUNTER_WIDTH + " : "
+                            + tagStr);
+                }
+                return new CounterSegment(width, start);
+            } catch (NumberFormatException e) {
+                throw new MalformedTagException("Invalid counter : " + tagStr, e);
+            }
+        }
+        Matcher letter = LETTER_PATTERN.matcher(tagStr);
+        if (letter.matches()) {
+            try {
+                int width = letter.group(1).isEmpty() ? 1 : Integer.parseInt(letter.group(1));
+                long start = letter.group(2) != null ? Long.parseLong(letter.group(2)) : 0;
+                if (width < 1 || width > LetterSegment.MAX_WIDTH || start > LetterSegment.MAX_START) {
+                    throw new MalformedTagException("Letter sequence out of range : " + tagStr);
+                }
+                return new LetterSegment(width, start);
+            } catch (NumberFormatException e) {
+                throw new MalformedTagException("Invalid letter sequence : " + tagStr, e);
+            }
+        }
+        try {
+            return new TagSegment(Tag.valueOf(tagStr.toUpperCase()));
+        } catch (IllegalArgumentException e) {
+            throw new MalformedTagException("Unknown tag : " + tagStr, e);
+        }
+    }
+
+    // Files that do not match the source regex keep their name
+    @Override
+    public boolean appendTo(final StringBuilder sb, final FileInfo file, final int index, final TagContext context) {
+        if (this.source != null && !this.source.match(file.getBaseName())) {
+            return false;
+        }
+        for (Segment segment : this.segments) {
+            segment.appendTo(sb, file, index, context);
+        }
+        return true;
+    }
+
+    @Override
+    public String getDescription() {
+        return this.source == null ? this.pattern : this.pattern + " (Source=" + this.source.getRegex() + ")";
+    }
+
+    @Override
+    public String toString() {
+        return "[" + getClass().getSimpleName() + ", Pattern=" + this.pattern + ", Source="
+                + (this.source != null ? this.source.getRegex() : null) + ", Segments=" + this.segments.length
+                + "]";
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * MIT License
+ *
+ * Copyright 2020 Julien LE SAUCE
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jls.filerenamer.rename;
+
+import java.util.List;
+
+import org.jls.filerenamer.util.FileInfo;
+
+/*
+ * Ordered rules evaluated in a single pass : the first rule whose filter accepts a file decides its name, files
+ * accepted by no rule keep their name. Files are numbered in the order of the whole selection.
+ */
+public final class RuleChain implements NameGenerator {
+
+    private final RenameRule[] rules;
+
+    public RuleChain(final List<RenameRule> rules) {
+        this.rules = rules.toArray(new RenameRule[0]);
+    }
+
+    @Override
+    public boolean appendTo(final StringBuilder sb, final FileInfo file, final int index, final TagContext context) {
+        for (RenameRule rule : this.rules) {
+            if (rule.getFilter() == null || rule.getFilter().accept(file.getFile())) {
+                return rule.getGenerator().appendTo(sb, file, index, context);
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String getDescription() {
+        StringBuilder sb = new StringBuilder("Rules=");
+        for (RenameRule rule : this.rules) {
+            sb.append('[').append(rule).append(']');
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "[" + getClass().getSimpleName() + ", Rules=" + this.rules.length + "]";
+    }
+}
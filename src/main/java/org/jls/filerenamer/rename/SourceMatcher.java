@@ -0,0 +1,73 @@
+/*
+ * MIT License
+ *
+ * Copyright 2020 Julien LE SAUCE
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jls.filerenamer.rename;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Source regex of a template, with one reusable matcher per worker thread
+final class SourceMatcher {
+
+    private final Pattern pattern;
+    private final ThreadLocal<MatchState> states;
+
+    SourceMatcher(final Pattern pattern) {
+        this.pattern = pattern;
+        this.states = ThreadLocal.withInitial(() -> new MatchState(pattern.matcher("")));
+    }
+
+    boolean match(final CharSequence name) {
+        MatchState state = this.states.get();
+        state.input = name;
+        return state.matcher.reset(name).matches();
+    }
+
+    // Appends a group of the last name matched by the current thread
+    void appendGroup(final StringBuilder sb, final int group) {
+        MatchState state = this.states.get();
+        int start = state.matcher.start(group);
+        if (start >= 0) {
+            sb.append(state.input, start, state.matcher.end(group));
+        }
+    }
+
+    int groupCount() {
+        return this.pattern.matcher("").groupCount();
+    }
+
+    String getRegex() {
+        return this.pattern.pattern();
+    }
+
+    private static final class MatchState {
+
+        private final Matcher matcher;
+        private CharSequence input;
+
+        private MatchState(final Matcher matcher) {
+            this.matcher = matcher;
+            this.input = "";
+        }
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ * MIT License
+ *
+ * Copyright 2020 Julien LE SAUCE
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jls.filerenamer.rename;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+import org.jls.filerenamer.util.FileFilter;
+import org.jls.filerenamer.util.FileInfo;
+import org.jls.filerenamer.util.TaskProgress;
+
+/*
+ * Rename plan of a whole directory tree kept on disk, for batches too large for the heap. The tree is walked once
+ * and each renamed file is added to a run of RUN_SIZE moves, sorted by target directory and written to a
+ * temporary file. The runs are then merged, and the moves are handed out as plans made of whole target
+ * directories : the collisions of a directory are all resolved within one plan, and the memory only depends on
+ * RUN_SIZE, the number of runs and the largest target directory.
+ *
+ * Files which leave a directory in a later plan still hold their name when the directory is resolved, so a
+ * colliding file may get a counter it would not need; no move can overwrite another file.
+ */
+public final class SpilledRenamePlan implements Closeable {
+
+    private static final int RUN_SIZE = 65536;
+    // Number of visited files between two checks of cancellation
+    private static final int CHECK_INTERVAL = 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Comparator<Move> ORDER = Comparator.comparing((Move m) -> m.directory)
+            .thenComparing(m -> m.name);
+
+    private final String description;
+    private final Path runDirectory;
+    private final ArrayList<Path> runs;
+    private long size;
+
+    private SpilledRenamePlan(final String description, final Path runDirectory) {
+        this.description = description;
+        this.runDirectory = runDirectory;
+        this.runs = new ArrayList<>();
+        this.size = 0;
+    }
+
+    // Hidden files and directories are ignored, as in the file table. A null filter accepts every file.
+    public static SpilledRenamePlan build(final Path root, final FileFilter filter, final NameGenerator generator,
+                                          final String extension, final TagContext context,
+                                          final TaskProgress progress) throws IOException {
+        SpilledRenamePlan plan = new SpilledRenamePlan(RenamePlanBuilder.describe(generator, extension),
+                Files.createTempDirectory("filerenamer-plan"));
+        try {
+            plan.walk(root, filter, generator, extension, context, progress);
+        } catch (IOException | RuntimeException e) {
+            plan.close();
+            throw e;
+        }
+        return plan;
+    }
+
+    private void walk(final Path root, final FileFilter filter, final NameGenerator generator,
+                      final String extension, final TagContext context, final TaskProgress progress)
+            throws IOException {
+        ArrayList<Move> run = new ArrayList<>(RUN_SIZE);
+        // Target directories are shared by the moves of a run
+        HashMap<String, String> directories = new HashMap<>();
+        StringBuilder filename = new StringBuilder();
+        // Visited files, and accepted files which are numbered as in a preview
+        long[] counts = {0, 0};
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs)
+                    throws IOException {
+                return dir.equals(root) || !Files.isHidden(dir) ? FileVisitResult.CONTINUE
+                        : FileVisitResult.SKIP_SUBTREE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(final Path path, final BasicFileAttributes attrs) throws IOException {
+                if (counts[0]++ % CHECK_INTERVAL == 0) {
+                    progress.checkCancelled();
+                }
+                progress.advance(1);
+                File file = path.toFile();
+                if (attrs.isDirectory() || Files.isHidden(path) || filter != null && !filter.accept(file)) {
+                    return FileVisitResult.CONTINUE;
+                }
+                FileInfo info = new FileInfo(file);
+                String newName = RenamePlanBuilder.newName(filename, info, (int) counts[1]++, generator, extension,
+                        context);
+                if (newName == null) {
+                    return FileVisitResult.CONTINUE;
+                }
+                RenameOperation operation = new RenameOperation(info, newName);
+                if (!operation.isUnchanged()) {
+                    String directory = operation.getTarget().getParent();
+                    run.add(new Move(directories.computeIfAbsent(directory, d -> d), operation.getNewName(),
+                            file.getPath()));
+                    if (run.size() == RUN_SIZE) {
+                        writeRun(run);
+                        run.clear();
+                        directories.clear();
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            // Unreadable directories are left out of the plan
+            @Override
+            public FileVisitResult visitFileFailed(final Path path, final IOException e) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        if (!run.isEmpty()) {
+            writeRun(run);
+        }
+    }
+
+    private void writeRun(final List<Move> run) throws IOException {
+        Move[] moves = run.toArray(new Move[0]);
+        Arrays.sort(moves, ORDER);
+        Path path = this.runDirectory.resolve("run" + this.runs.size());
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path),
+                BUFFER_SIZE))) {
+            out.writeInt(moves.length);
+            for (Move move : moves) {
+                out.writeUTF(move.directory);
+                out.writeUTF(move.name);
+                out.writeUTF(move.source);
+            }
+        }
+        this.runs.add(path);
+        this.size += moves.length;
+    }
+
+    public long size() {
+        return this.size;
+    }
+
+    /*
+     * Merges the runs and hands out plans of at least planSize moves made of whole target directories, in the order
+     * of the directories. Stops before the next plan once the progress is cancelled.
+     */
+    public void forEachPlan(final int planSize, final CollisionMode collisionMode, final TaskProgress progress,
+                            final Consumer<RenamePlan> consumer) throws IOException {
+        PriorityQueue<RunReader> queue = new PriorityQueue<>(Math.max(1, this.runs.size()),
+                (r1, r2) -> ORDER.compare(r1.current, r2.current));
+        ArrayList<RunReader> readers = new ArrayList<>();
+        try {
+            for (Path run : this.runs) {
+                RunReader reader = new RunReader(run);
+                readers.add(reader);
+                if (reader.next()) {
+                    queue.add(reader);
+                }
+            }
+            ArrayList<RenameOperation> operations = new ArrayList<>();
+            String directory = null;
+            while (!queue.isEmpty()) {
+                RunReader reader = queue.poll();
+                Move move = reader.current;
+                if (!move.directory.equals(directory) && operations.size() >= planSize) {
+                    if (progress.isCancelled()) {
+                        return;
+                    }
+                    consumer.accept(toPlan(operations, collisionMode));
+                    operations.clear();
+                }
+                directory = move.directory;
+                File source = new File(move.source);
+                operations.add(new RenameOperation(new FileInfo(source), new File(move.directory, move.name)));
+                if (reader.next()) {
+                    queue.add(reader);
+                }
+            }
+            if (!operations.isEmpty() && !progress.isCancelled()) {
+                consumer.accept(toPlan(operations, collisionMode));
+            }
+        } finally {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    private RenamePlan toPlan(final List<RenameOperation> operations, final CollisionMode collisionMode) {
+        RenameOperation[] array = operations.toArray(new RenameOperation[0]);
+        CollisionResolver.resolve(array, collisionMode);
+        return new RenamePlan(this.description, List.of(), array);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Path run : this.runs) {
+            Files.deleteIfExists(run);
+        }
+        Files.deleteIfExists(this.runDirectory);
+    }
+
+    @Override
+    public String toString() {
+        return "[" + getClass().getSimpleName() + ", Description=" + this.description + ", Moves=" + this.size
+                + ", Runs=" + this.runs.size() + "]";
+    }
+
+    private static final class Move {
+
+        private final String directory;
+        private final String name;
+        private final String source;
+
+        private Move(final String directory, final String name, final String source) {
+            this.directory = directory;
+            this.name = name;
+            this.source = source;
+        }
+    }
+
+    private static final class RunReader implements Closeable {
+
+        private final DataInputStream in;
+        private int remaining;
+        private Move current;
+
+        private RunReader(final Path path) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE));
+            this.remaining = this.in.readInt();
+            this.current = null;
+        }
+
+        private boolean next() throws IOException {
+            if (this.remaining == 0) {
+                return false;
+            }
+            this.remaining--;
+            this.current = new Move(this.in.readUTF(), this.in.readUTF(), this.in.readUTF());
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.in.close();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * MIT License
+ *
+ * Copyright 2020 Julien LE SAUCE
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jls.filerenamer.rename;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jls.filerenamer.util.FileInfo;
+import org.jls.filerenamer.util.Tag;
+
+public final class TagContext {
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter YEAR_FORMAT = DateTimeFormatter.ofPattern("yyyy");
+    private static final DateTimeFormatter YEAR_SMALL_FORMAT = DateTimeFormatter.ofPattern("yy");
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("MM");
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("dd");
+
+    private final String date;
+    private final String year;
+    private final String yearSmall;
+    private final String month;
+    private final String day;
+    private final ConcurrentHashMap<String, String> dirNames;
+    private final NameMapping nameMapping;
+    // Rows of the name mapping used by this context, only ever set to true so concurrent writes are harmless
+    private final boolean[] usedRows;
+    private final LongAdder nbMappedFiles;
+    private final LongAdder nbUnmappedFiles;
+
+    public TagContext(final LocalDate today, final NameMapping nameMapping) {
+        this.date = DATE_FORMAT.format(today);
+        this.year = YEAR_FORMAT.format(today);
+        this.yearSmall = YEAR_SMALL_FORMAT.format(today);
+        this.month = MONTH_FORMAT.format(today);
+        this.day = DAY_FORMAT.format(today);
+        this.dirNames = new ConcurrentHashMap<>();
+        this.nameMapping = nameMapping;
+        this.usedRows = nameMapping != null ? new boolean[nameMapping.size()] : null;
+        this.nbMappedFiles = new LongAdder();
+        this.nbUnmappedFiles = new LongAdder();
+    }
+
+    public static TagContext now(final NameMapping nameMapping) {
+        return new TagContext(LocalDate.now(), nameMapping);
+    }
+
+    public String valueOf(final Tag tag, final FileInfo file) {
+        switch (tag) {
+            case DATE:
+                return this.date;
+            case YEAR:
+                return this.year;
+            case YEAR_SMALL:
+                return this.yearSmall;
+            case MONTH:
+                return this.month;
+            case DAY:
+                return this.day;
+            case DIR_NAME:
+                return getDirName(file.getFile());
+            case FILE_NAME:
+                // FileSystemView is not thread-safe, so the base name is taken from the file name itself
+                return file.getBaseName();
+            case IMPORTED_NAME:
+                return getImportedName(file);
+            default:
+                throw new IllegalArgumentException("Illegal tag : " + tag);
+        }
+    }
+
+    // Files missing from the mapping keep their base name
+    private String getImportedName(final FileInfo file) {
+        if (this.nameMapping != null) {
+            int row = this.nameMapping.indexOf(file);
+            if (row >= 0) {
+                this.usedRows[row] = true;
+                this.nbMappedFiles.increment();
+                return this.nameMapping.getNewBaseName(row, file.getExtension());
+            }
+            this.nbUnmappedFiles.increment();
+        }
+        return file.getBaseName();
+    }
+
+    public boolean isNameMappingUsed() {
+        return this.nameMapping != null && this.nbMappedFiles.sum() + this.nbUnmappedFiles.sum() > 0;
+    }
+
+    public long getNbUnmappedFiles() {
+        return this.nbUnmappedFiles.sum();
+    }
+
+    // Old names of the mapping which matched none of the renamed files
+    public List<String> getUnmatchedRows() {
+        ArrayList<String> rows = new ArrayList<>();
+        for (int i = 0; this.usedRows != null && i < this.usedRows.length; i++) {
+            if (!this.usedRows[i]) {
+                rows.add(this.nameMapping.getOldName(i));
+            }
+        }
+        return rows;
+    }
+
+    private String getDirName(final File file) {
+        String parent = file.getParent();
+        if (parent == null) {
+            return "";
+        }
+        return this.dirNames.computeIfAbsent(parent, p -> new File(p).getName());
+    }
+}
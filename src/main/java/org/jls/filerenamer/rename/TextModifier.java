@@ -0,0 +1,255 @@
+/*
+ * MIT License
+ *
+ * Copyright 2020 Julien LE SAUCE
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jls.filerenamer.rename;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/*
+ * Modifiers applied to the value of a tag, e.g. {file_name:lower}. Pure ASCII values, which are the common case, are
+ * transformed in place with lookup tables. Other values go through Normalizer and the Unicode case rules.
+ */
+enum TextModifier {
+
+    LOWER, UPPER, TITLE, ASCII, SLUG;
+
+    private static final int ASCII_SIZE = 128;
+    private static final char[] LOWER_CASE = new char[ASCII_SIZE];
+    private static final char[] UPPER_CASE = new char[ASCII_SIZE];
+    private static final boolean[] ALPHANUMERIC = new boolean[ASCII_SIZE];
+
+    static {
+        for (char c = 0; c < ASCII_SIZE; c++) {
+            boolean lower = c >= 'a' && c <= 'z';
+            boolean upper = c >= 'A' && c <= 'Z';
+            LOWER_CASE[c] = upper ? (char) (c + ('a' - 'A')) : c;
+            UPPER_CASE[c] = lower ? (char) (c - ('a' - 'A')) : c;
+            ALPHANUMERIC[c] = lower || upper || (c >= '0' && c <= '9');
+        }
+    }
+
+    // Transforms the characters of the builder from start to its end
+    void apply(final StringBuilder sb, final int start) {
+        if (isAscii(sb, start)) {
+            applyAscii(sb, start);
+        } else {
+            String value = sb.substring(start);
+            sb.setLength(start);
+            sb.append(transform(value));
+        }
+    }
+
+    private void applyAscii(final StringBuilder sb, final int start) {
+        switch (this) {
+            case LOWER:
+                map(sb, start, LOWER_CASE);
+                break;
+            case UPPER:
+                map(sb, start, UPPER_CASE);
+                break;
+            case TITLE:
+                titleAscii(sb, start);
+                break;
+            case ASCII:
+                break;
+            case SLUG:
+                slugAscii(sb, start);
+                break;
+            default:
+                throw new IllegalStateException("Illegal modifier : " + this);
+        }
+    }
+
+    private String transform(final String value) {
+        switch (this) {
+            case LOWER:
+                return value.toLowerCase(Locale.ROOT);
+            case UPPER:
+                return value.toUpperCase(Locale.ROOT);
+            case TITLE:
+                return toTitleCase(value);
+            case ASCII:
+                return stripDiacritics(value);
+            case SLUG:
+                return toSlug(stripDiacritics(value));
+            default:
+                throw new IllegalStateException("Illegal modifier : " + this);
+        }
+    }
+
+    private static boolean isAscii(final StringBuilder sb, final int start) {
+        for (int i = start; i < sb.length(); i++) {
+            if (sb.charAt(i) >= ASCII_SIZE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void map(final StringBuilder sb, final int start, final char[] table) {
+        for (int i = start; i < sb.length(); i++) {
+            sb.setCharAt(i, table[sb.charAt(i)]);
+        }
+    }
+
+    // Words start after any character other than a letter, a digit or an apostrophe
+    private static void titleAscii(final StringBuilder sb, final int start) {
+        boolean wordStart = true;
+        for (int i = start; i < sb.length(); i++) {
+            char c = sb.charAt(i);
+            if (ALPHANUMERIC[c]) {
+                sb.setCharAt(i, wordStart ? UPPER_CASE[c] : LOWER_CASE[c]);
+                wordStart = false;
+            } else {
+                wordStart = c != '\'';
+            }
+        }
+    }
+
+    // Lower case letters and digits, other runs of characters replaced by a single dash. Compacts the builder in
+    // place : a dash is only written after at least one character has been dropped.
+    private static void slugAscii(final StringBuilder sb, final int start) {
+        int length = start;
+        boolean separator = false;
+        for (int i = start; i < sb.length(); i++) {
+            char c = sb.charAt(i);
+            if (ALPHANUMERIC[c]) {
+                if (separator && length > start) {
+                    sb.setCharAt(length++, '-');
+                }
+                sb.setCharAt(length++, LOWER_CASE[c]);
+                separator = false;
+            } else {
+                separator = true;
+            }
+        }
+        sb.setLength(length);
+    }
+
+    private static String toTitleCase(final String value) {
+        StringBuilder sb = new StringBuilder(value.length());
+        boolean wordStart = true;
+        for (int i = 0; i < value.length(); ) {
+            int cp = value.codePointAt(i);
+            if (Character.isLetterOrDigit(cp)) {
+                sb.appendCodePoint(wordStart ? Character.toTitleCase(cp) : Character.toLowerCase(cp));
+                wordStart = false;
+            } else {
+                sb.appendCodePoint(cp);
+                wordStart = cp != '\'' && cp != '\u2019';
+            }
+            i += Character.charCount(cp);
+        }
+        return sb.toString();
+    }
+
+    private static String toSlug(final String value) {
+        StringBuilder sb = new StringBuilder(value.length());
+        boolean separator = false;
+        for (int i = 0; i < value.length(); ) {
+            int cp = value.codePointAt(i);
+            if (Character.isLetterOrDigit(cp)) {
+                if (separator && sb.length() > 0) {
+                    sb.append('-');
+                }
+                sb.appendCodePoint(Character.toLowerCase(cp));
+                separator = false;
+            } else {
+                separator = true;
+            }
+            i += Character.charCount(cp);
+        }
+        return sb.toString();
+    }
+
+    // Decomposes the characters, drops the combining marks and recomposes what is left (e.g. Hangul syllables)
+    private static String stripDiacritics(final String value) {
+        String decomposed = Normalizer.normalize(value, Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); ) {
+            int cp = decomposed.codePointAt(i);
+            int type = Character.getType(cp);
+            if (type != Character.NON_SPACING_MARK && type != Character.COMBINING_SPACING_MARK
+                    && type != Character.ENCLOSING_MARK) {
+                appendLetter(sb, cp);
+            }
+            i += Character.charCount(cp);
+        }
+        return Normalizer.normalize(sb, Normalizer.Form.NFC);
+    }
+
+    // Latin letters which have no canonical decomposition : sharp s, ae, oe, o with stroke, d with stroke, l with
+    // stroke and thorn
+    private static void appendLetter(final StringBuilder sb, final int cp) {
+        switch (cp) {
+            case '\u00DF':
+                sb.append("ss");
+                break;
+            case '\u00C6':
+                sb.append("AE");
+                break;
+            case '\u00E6':
+                sb.append("ae");
+                break;
+            case '\u0152':
+                sb.append("OE");
+                break;
+            case '\u0153':
+                sb.append("oe");
+                break;
+            case '\u00D8':
+                sb.append('O');
+                break;
+            case '\u00F8':
+                sb.append('o');
+                break;
+            case '\u0110':
+                sb.append('D');
+                break;
+            case '\u0111':
+                sb.append('d');
+                break;
+            case '\u0141':
+                sb.append('L');
+                break;
+            case '\u0142':
+                sb.append('l');
+                break;
+            case '\u00DE':
+                sb.append("Th");
+                break;
+            case '\u00FE':
+                sb.append("th");
+                break;
+            default:
+                sb.appendCodePoint(cp);
+                break;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name().toLowerCase();
+    }
+}
@@ -26,11 +26,11 @@ package org.jls.filerenamer.util;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Locale;
+import java.util.regex.Pattern;
 
 import javax.swing.filechooser.FileNameExtensionFilter;
 
-import org.apache.commons.io.FilenameUtils;
-
 public class FileFilter {
 
     private final String startsWith;
@@ -38,6 +38,8 @@ public class FileFilter {
     private final String contains;
     private final FileNameExtensionFilter extensionFilter;
     private final String regex;
+    private final Pattern pattern;
+    private final String[] extensions;
 
     public FileFilter(String startsWith, String endsWith, String contains, FileNameExtensionFilter extensionFilter,
                       String regex) {
@@ -47,10 +49,17 @@ public class FileFilter {
         this.contains = contains;
         this.extensionFilter = extensionFilter;
         this.regex = regex;
+        this.pattern = regex != null && !regex.isEmpty() ? Pattern.compile(regex) : null;
+        this.extensions = extensionFilter != null ? lowerCase(extensionFilter.getExtensions()) : null;
     }
 
+    // Predicates are tested from the cheapest to the most expensive : the file system is only queried when the
+    // extension does not match, since directories are accepted whatever their extension. Names are split as
+    // FileInfo does, so that a rule filter and its pattern see the same base name.
     public boolean accept(File file) {
-        String nameWithoutExt = FilenameUtils.removeExtension(file.getName());
+        String name = file.getName();
+        int dot = FileInfo.indexOfExtension(name);
+        String nameWithoutExt = dot < 0 ? name : name.substring(0, dot);
         if (this.startsWith != null && !this.startsWith.isEmpty() && !nameWithoutExt.startsWith(this.startsWith)) {
             return false;
         }
@@ -60,13 +69,31 @@ public class FileFilter {
         if (this.contains != null && !contains.isEmpty() && !nameWithoutExt.contains(this.contains)) {
             return false;
         }
-        if (this.regex != null && !regex.isEmpty() && !nameWithoutExt.matches(regex)) {
+        boolean extensionMatches = this.extensions == null || (dot >= 0 && hasExtension(name.substring(dot + 1)));
+        if (this.pattern != null && !this.pattern.matcher(nameWithoutExt).matches()) {
             return false;
         }
-        if (!file.isDirectory() && this.extensionFilter != null) {
-            return this.extensionFilter.accept(file);
+        return extensionMatches || file.isDirectory();
+    }
+
+    // Filtered extensions cannot hold a dot : tar.gz is matched by its whole extension or by gz
+    private boolean hasExtension(final String extension) {
+        String lowerCaseExtension = extension.toLowerCase(Locale.ENGLISH);
+        String lastExtension = lowerCaseExtension.substring(lowerCaseExtension.lastIndexOf('.') + 1);
+        for (String ext : this.extensions) {
+            if (ext.equals(lowerCaseExtension) || ext.equals(lastExtension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String[] lowerCase(final String[] extensions) {
+        String[] lowerCaseExtensions = new String[extensions.length];
+        for (int i = 0; i < extensions.length; i++) {
+            lowerCaseExtensions[i] = extensions[i].toLowerCase(Locale.ENGLISH);
         }
-        return true;
+        return lowerCaseExtensions;
     }
 
     public ArrayList<File> filter(Collection<? extends File> files) {
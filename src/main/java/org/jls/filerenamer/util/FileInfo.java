@@ -28,11 +28,11 @@ import java.io.File;
 import javax.swing.Icon;
 import javax.swing.filechooser.FileSystemView;
 
-import org.apache.commons.io.FilenameUtils;
-
 public class FileInfo {
 
     private static final FileSystemView FILE_SYSTEM_VIEW = FileSystemView.getFileSystemView();
+    // Compressed archives whose extension is kept whole : name.tar.gz has the extension tar.gz
+    private static final String[] COMPRESSED_TAR_EXTENSIONS = {"gz", "bz2", "xz", "zst", "lz", "lzma", "z"};
 
     private File file;
     private String newName;
@@ -42,12 +42,6 @@ public class FileInfo {
         this.newName = "";
     }
 
-    public boolean renameTo(String filename) {
-        File newFile = new File(this.file.getParent() + File.separator + filename);
-        setNewName(filename);
-        return this.file.renameTo(newFile);
-    }
-
     public File getFile() {
         return this.file;
     }
@@ -69,7 +63,33 @@ public class FileInfo {
     }
 
     public String getExtension() {
-        return FilenameUtils.getExtension(this.file.getName());
+        String name = this.file.getName();
+        int dot = indexOfExtension(name);
+        return dot < 0 ? "" : name.substring(dot + 1);
+    }
+
+    public String getBaseName() {
+        String name = this.file.getName();
+        int dot = indexOfExtension(name);
+        return dot < 0 ? name : name.substring(0, dot);
+    }
+
+    // Index of the dot starting the extension of a file name, -1 if it has none. The leading dot of hidden files does
+    // not start an extension.
+    public static int indexOfExtension(final String name) {
+        int dot = name.lastIndexOf('.');
+        if (dot <= 0) {
+            return -1;
+        }
+        if (dot > 4 && name.regionMatches(true, dot - 4, ".tar", 0, 4)) {
+            for (String extension : COMPRESSED_TAR_EXTENSIONS) {
+                if (name.length() - dot - 1 == extension.length()
+                        && name.regionMatches(true, dot + 1, extension, 0, extension.length())) {
+                    return dot - 4;
+                }
+            }
+        }
+        return dot;
     }
 
     public String getNewName() {
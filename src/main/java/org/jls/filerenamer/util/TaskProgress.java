@@ -0,0 +1,131 @@
+/*
+ * MIT License
+ *
+ * Copyright 2020 Julien LE SAUCE
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jls.filerenamer.util;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Progress of a background task, shared between the workers which advance it and the view which displays it.
+ * Cancellation is cooperative : workers check isCancelled() between two chunks of work and stop where the work can
+ * be left in a consistent state.
+ */
+public final class TaskProgress {
+
+    private final String name;
+    private final long startTime;
+    private final LongAdder done;
+    private final long total;
+    private volatile boolean cancelled;
+    private volatile boolean finished;
+    // Time at which the task was finished or cancelled, only read once ended is set
+    private volatile long endTime;
+    private volatile boolean ended;
+
+    // A negative total means the amount of work is not known
+    public TaskProgress(final String name, final long total) {
+        this.name = name;
+        this.startTime = System.nanoTime();
+        this.done = new LongAdder();
+        this.total = total;
+        this.cancelled = false;
+        this.finished = false;
+        this.ended = false;
+    }
+
+    public void advance(final long amount) {
+        this.done.add(amount);
+    }
+
+    public void cancel() {
+        this.cancelled = true;
+        end();
+    }
+
+    public boolean isCancelled() {
+        return this.cancelled;
+    }
+
+    public void checkCancelled() {
+        if (this.cancelled) {
+            throw new CancellationException(this.name + " cancelled");
+        }
+    }
+
+    public void finish() {
+        this.finished = true;
+        end();
+    }
+
+    // The elapsed time stops with the first of finish() and cancel()
+    private synchronized void end() {
+        if (!this.ended) {
+            this.endTime = System.nanoTime();
+            this.ended = true;
+        }
+    }
+
+    public boolean isFinished() {
+        return this.finished;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public long getDone() {
+        return this.done.sum();
+    }
+
+    public long getTotal() {
+        return this.total;
+    }
+
+    public double getElapsedSeconds() {
+        long now = this.ended ? this.endTime : System.nanoTime();
+        return (now - this.startTime) / 1e9;
+    }
+
+    // Work done per second since the start of the task
+    public double getThroughput() {
+        double elapsed = getElapsedSeconds();
+        return elapsed > 0 ? getDone() / elapsed : 0;
+    }
+
+    // Estimated seconds until the end of the task, -1 if it cannot be estimated yet
+    public long getRemainingSeconds() {
+        long done = getDone();
+        double throughput = getThroughput();
+        if (this.total < 0 || done == 0 || throughput <= 0) {
+            return -1;
+        }
+        return (long) Math.ceil(Math.max(0, this.total - done) / throughput);
+    }
+
+    @Override
+    public String toString() {
+        return "[" + getClass().getSimpleName() + ", Name=" + this.name + ", Done=" + getDone() + ", Total="
+                + this.total + ", Cancelled=" + this.cancelled + "]";
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * MIT License
+ *
+ * Copyright 2020 Julien LE SAUCE
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jls.filerenamer.rename;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jls.filerenamer.util.FileInfo;
+import org.junit.Test;
+
+public class DepthOrderTest {
+
+    private static final File DIR = new File(System.getProperty("java.io.tmpdir"), "depth");
+
+    private static RenameOperation operation(final String from, final String to) {
+        return new RenameOperation(new FileInfo(new File(DIR, from)), new File(DIR, to));
+    }
+
+    // Level of the sequence that contains the operation
+    private static int levelOf(final RenameSchedule schedule, final int index) {
+        List<int[]> sequences = schedule.getSequences();
+        for (int s = 0; s < sequences.size(); s++) {
+            for (int step : sequences.get(s)) {
+                if (RenameSchedule.indexOf(step) == index) {
+                    return schedule.getLevel(s);
+                }
+            }
+        }
+        throw new AssertionError("Operation " + index + " is not scheduled");
+    }
+
+    @Test
+    public void independentOperationsShareFirstLevel() {
+        List<RenameOperation> operations = new ArrayList<>();
+        operations.add(operation("a/x", "a/y"));
+        operations.add(operation("b/x", "b/y"));
+        RenameSchedule schedule = RenamePlanner.schedule(operations, new RenameReport(operations.size()));
+
+        assertEquals(1, schedule.getNbLevels());
+        assertEquals(0, levelOf(schedule, 0));
+        assertEquals(0, levelOf(schedule, 1));
+    }
+
+    @Test
+    public void filesMoveBeforeTheirDirectory() {
+        List<RenameOperation> operations = new ArrayList<>();
+        operations.add(operation("a", "b"));
+        operations.add(operation("a/x", "a/y"));
+        operations.add(operation("a/sub/z", "a/sub/w"));
+        RenameSchedule schedule = RenamePlanner.schedule(operations, new RenameReport(operations.size()));
+
+        assertEquals(2, schedule.getNbLevels());
+        assertEquals(1, levelOf(schedule, 0));
+        assertEquals(0, levelOf(schedule, 1));
+        assertEquals(0, levelOf(schedule, 2));
+    }
+
+    @Test
+    public void nestedDirectoriesAddLevels() {
+        List<RenameOperation> operations = new ArrayList<>();
+        operations.add(operation("a", "b"));
+        operations.add(operation("a/c", "a/d"));
+        operations.add(operation("a/c/x", "a/c/y"));
+        RenameSchedule schedule = RenamePlanner.schedule(operations, new RenameReport(operations.size()));
+
+        assertEquals(3, schedule.getNbLevels());
+        assertEquals(2, levelOf(schedule, 0));
+        assertEquals(1, levelOf(schedule, 1));
+        assertEquals(0, levelOf(schedule, 2));
+    }
+
+    @Test
+    public void filesMoveAfterTheirDirectoryIsRestored() {
+        // Revert of a batch that renamed a/x to a/y, then a to b
+        List<RenameOperation> operations = new ArrayList<>();
+        operations.add(operation("a/y", "a/x"));
+        operations.add(operation("b", "a"));
+        RenameSchedule schedule = RenamePlanner.schedule(operations, new RenameReport(operations.size()));
+
+        assertEquals(2, schedule.getNbLevels());
+        assertEquals(1, levelOf(schedule, 0));
+        assertEquals(0, levelOf(schedule, 1));
+    }
+
+    @Test
+    public void circularDirectoryRenamesAreNotRun() {
+        List<RenameOperation> operations = new ArrayList<>();
+        operations.add(operation("a", "b"));
+        operations.add(operation("b/x", "a/x"));
+        operations.add(operation("c/x", "c/y"));
+        RenameReport report = new RenameReport(operations.size());
+        RenameSchedule schedule = RenamePlanner.schedule(operations, report);
+
+        assertEquals(-1, levelOf(schedule, 0));
+        assertEquals(-1, levelOf(schedule, 1));
+        assertEquals(0, levelOf(schedule, 2));
+        assertEquals(OutcomeReason.CIRCULAR_RENAME, report.getOutcomeReason(0));
+        assertEquals(OutcomeReason.CIRCULAR_RENAME, report.getOutcomeReason(1));
+        assertEquals(RenameOutcome.PENDING, report.getOutcome(2));
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * MIT License
+ *
+ * Copyright 2020 Julien LE SAUCE
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jls.filerenamer.rename;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JournalPlanTest {
+
+    private Path directory;
+    private File a;
+    private File b;
+    private File temp;
+
+    @Before
+    public void setUp() throws IOException {
+        this.directory = Files.createTempDirectory("plan");
+        this.a = this.directory.resolve("a").toFile();
+        this.b = this.directory.resolve("b").toFile();
+        this.temp = this.directory.resolve(".filerenamer-0-0.tmp").toFile();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(this.directory.toFile());
+    }
+
+    private static void create(final File file) throws IOException {
+        Files.createFile(file.toPath());
+    }
+
+    private JournalPlan plannedMove(final boolean complete) {
+        JournalPlan plan = new JournalPlan(0, complete);
+        plan.add(RenameJournal.PLANNED, 0, this.a.getPath(), this.b.getPath());
+        return plan;
+    }
+
+    // Swap of a and b, a being moved to its temporary name first
+    private JournalPlan plannedSwap() {
+        JournalPlan plan = plannedMove(false);
+        plan.add(RenameJournal.PLANNED, 1, this.b.getPath(), this.a.getPath());
+        plan.add(RenameJournal.TEMP, 0, this.temp.getPath(), "");
+        return plan;
+    }
+
+    @Test
+    public void unmovedFileIsAtItsSource() throws IOException {
+        create(this.a);
+        JournalPlan plan = plannedMove(false);
+
+        List<File[]> pending = plan.getPendingMoves();
+
+        assertEquals(1, pending.size());
+        assertArrayEquals(new File[]{this.a, this.b}, pending.get(0));
+        assertTrue(plan.getRevertMoves().isEmpty());
+    }
+
+    @Test
+    public void journaledMoveIsTrusted() throws IOException {
+        create(this.b);
+        JournalPlan plan = plannedMove(false);
+        plan.add(RenameJournal.MOVED, 0, this.a.getPath(), this.b.getPath());
+
+        assertTrue(plan.getPendingMoves().isEmpty());
+        List<File[]> revert = plan.getRevertMoves();
+        assertEquals(1, revert.size());
+        assertArrayEquals(new File[]{this.b, this.a}, revert.get(0));
+    }
+
+    @Test
+    public void unjournaledMoveIsFoundAtTarget() throws IOException {
+        // Interrupted after the move, before its record
+        create(this.b);
+        JournalPlan plan = plannedMove(false);
+
+        assertTrue(plan.getPendingMoves().isEmpty());
+        List<File[]> revert = plan.getRevertMoves();
+        assertEquals(1, revert.size());
+        assertArrayEquals(new File[]{this.b, this.a}, revert.get(0));
+    }
+
+    @Test
+    public void unjournaledMoveIsFoundAtTempName() throws IOException {
+        create(this.temp);
+        create(this.b);
+        JournalPlan plan = plannedSwap();
+
+        List<File[]> pending = plan.getPendingMoves();
+        assertEquals(2, pending.size());
+        assertArrayEquals(new File[]{this.temp, this.b}, pending.get(0));
+        assertArrayEquals(new File[]{this.b, this.a}, pending.get(1));
+        List<File[]> revert = plan.getRevertMoves();
+        assertEquals(1, revert.size());
+        assertArrayEquals(new File[]{this.temp, this.a}, revert.get(0));
+    }
+
+    @Test
+    public void completeBatchIsNotProbed() throws IOException {
+        create(this.b);
+        JournalPlan plan = plannedMove(true);
+
+        List<File[]> pending = plan.getPendingMoves();
+
+        assertEquals(1, pending.size());
+        assertArrayEquals(new File[]{this.a, this.b}, pending.get(0));
+    }
+
+    @Test
+    public void planIsNumberedFromItsOffset() throws IOException {
+        create(this.b);
+        JournalPlan plan = new JournalPlan(10, false);
+        plan.add(RenameJournal.PLANNED, 12, this.a.getPath(), this.b.getPath());
+        plan.add(RenameJournal.MOVED, 12, this.a.getPath(), this.b.getPath());
+
+        assertEquals(1, plan.size());
+        assertTrue(plan.getPendingMoves().isEmpty());
+        assertArrayEquals(new File[]{this.b, this.a}, plan.getRevertMoves().get(0));
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * MIT License
+ *
+ * Copyright 2020 Julien LE SAUCE
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jls.filerenamer.rename;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.commons.io.FileUtils;
+import org.jls.filerenamer.util.FileInfo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NameMappingTest {
+
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        this.directory = Files.createTempDirectory("mapping");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(this.directory.toFile());
+    }
+
+    private NameMapping load(final String content) throws IOException {
+        Path path = this.directory.resolve("mapping.csv");
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+        return NameMapping.load(path);
+    }
+
+    private FileInfo file(final String name) {
+        return new FileInfo(this.directory.resolve(name).toFile());
+    }
+
+    @Test
+    public void commaSeparatedRows() throws IOException {
+        NameMapping mapping = load("a.jpg,first\nb.jpg,second,ignored\r\n");
+
+        assertEquals(2, mapping.size());
+        assertEquals(0, mapping.getNbIgnoredRows());
+        assertEquals("a.jpg", mapping.getOldName(0));
+        assertEquals("first", mapping.getNewBaseName(0, "jpg"));
+        assertEquals("second", mapping.getNewBaseName(1, "jpg"));
+    }
+
+    @Test
+    public void tabSeparatedRows() throws IOException {
+        NameMapping mapping = load("a, b.jpg\tc, d\n");
+
+        assertEquals(1, mapping.size());
+        assertEquals("a, b.jpg", mapping.getOldName(0));
+        assertEquals("c, d", mapping.getNewBaseName(0, "jpg"));
+    }
+
+    @Test
+    public void quotedFields() throws IOException {
+        NameMapping mapping = load("\"a,b.jpg\",\"say \"\"hi\"\"\"\n");
+
+        assertEquals(1, mapping.size());
+        assertEquals("a,b.jpg", mapping.getOldName(0));
+        assertEquals("say \"hi\"", mapping.getNewBaseName(0, "jpg"));
+    }
+
+    @Test
+    public void byteOrderMarkAndBlankLinesAreSkipped() throws IOException {
+        NameMapping mapping = load("\uFEFFa.jpg,first\n\n\u00E9t\u00E9.jpg,summer\n");
+
+        assertEquals(2, mapping.size());
+        assertEquals(0, mapping.getNbIgnoredRows());
+        assertEquals("a.jpg", mapping.getOldName(0));
+        assertEquals("\u00E9t\u00E9.jpg", mapping.getOldName(1));
+    }
+
+    @Test
+    public void incompleteAndDuplicateRowsAreIgnored() throws IOException {
+        NameMapping mapping = load("a.jpg\n,b\nc.jpg,\nd.jpg,first\nd.jpg,second\n");
+
+        assertEquals(1, mapping.size());
+        assertEquals(4, mapping.getNbIgnoredRows());
+        assertEquals("first", mapping.getNewBaseName(0, "jpg"));
+    }
+
+    @Test
+    public void extensionOfNewNameIsRemoved() throws IOException {
+        NameMapping mapping = load("a.jpg,first.JPG\nb.jpg,second.png\n");
+
+        assertEquals("first", mapping.getNewBaseName(0, "jpg"));
+        assertEquals("second.png", mapping.getNewBaseName(1, "jpg"));
+        assertEquals("first.JPG", mapping.getNewBaseName(0, ""));
+    }
+
+    @Test
+    public void filesAreLookedUpByPathNameAndBaseName() throws IOException {
+        NameMapping mapping = load("sub/a.jpg,first\nb.jpg,second\nc,third\n");
+
+        assertEquals(new File(this.directory.toFile(), "sub" + File.separator + "a.jpg").getPath(),
+                mapping.getOldName(0));
+        assertEquals(0, mapping.indexOf(file("sub/a.jpg")));
+        assertEquals(-1, mapping.indexOf(file("a.jpg")));
+        assertEquals(1, mapping.indexOf(file("b.jpg")));
+        assertEquals(2, mapping.indexOf(file("c.png")));
+        assertEquals(-1, mapping.indexOf(file("d.jpg")));
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * MIT License
+ *
+ * Copyright 2020 Julien LE SAUCE
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jls.filerenamer.rename;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+
+import org.jls.filerenamer.util.FileInfo;
+import org.jls.filerenamer.util.MalformedTagException;
+import org.junit.Test;
+
+public class RegexReplacementTest {
+
+    // Replaced base name, or null if the regex does not match
+    private static String replace(final RegexReplacement replacement, final String name) {
+        StringBuilder sb = new StringBuilder();
+        return replacement.appendTo(sb, new FileInfo(new File(name)), 0, null) ? sb.toString() : null;
+    }
+
+    @Test
+    public void replacesFirstMatch() throws MalformedTagException {
+        RegexReplacement replacement = RegexReplacement.compile("o", "0", false, false);
+
+        assertEquals("f0o", replace(replacement, "foo.txt"));
+    }
+
+    @Test
+    public void replacesAllMatches() throws MalformedTagException {
+        RegexReplacement replacement = RegexReplacement.compile("o", "0", false, true);
+
+        assertEquals("f00", replace(replacement, "foo.txt"));
+    }
+
+    @Test
+    public void noMatchReturnsFalse() throws MalformedTagException {
+        RegexReplacement replacement = RegexReplacement.compile("x", "y", false, true);
+        StringBuilder sb = new StringBuilder();
+
+        assertFalse(replacement.appendTo(sb, new FileInfo(new File("foo.txt")), 0, null));
+        assertEquals(0, sb.length());
+    }
+
+    @Test
+    public void extensionIsNotReplaced() throws MalformedTagException {
+        RegexReplacement replacement = RegexReplacement.compile("txt", "doc", false, true);
+
+        assertNull(replace(replacement, "foo.txt"));
+    }
+
+    @Test
+    public void ignoreCase() throws MalformedTagException {
+        assertEquals("xxx", replace(RegexReplacement.compile("a", "x", true, true), "aAa.txt"));
+        assertEquals("xAx", replace(RegexReplacement.compile("a", "x", false, true), "aAa.txt"));
+    }
+
+    @Test
+    public void groupReferences() throws MalformedTagException {
+        RegexReplacement replacement = RegexReplacement.compile("(\\d{4})-(\\d{2})", "$2.$1", false, false);
+
+        assertEquals("IMG 05.2020 x", replace(replacement, "IMG 2020-05 x.jpg"));
+    }
+
+    @Test
+    public void unmatchedGroupIsEmpty() throws MalformedTagException {
+        RegexReplacement replacement = RegexReplacement.compile("a(b)?c", "[$1]", false, true);
+
+        assertEquals("[b]-[]", replace(replacement, "abc-ac.txt"));
+    }
+
+    @Test
+    public void groupNumberIsTheLongestExistingGroup() throws MalformedTagException {
+        // With a single group, $10 is group 1 followed by 0
+        RegexReplacement replacement = RegexReplacement.compile("(a)", "$10", false, false);
+
+        assertEquals("a0", replace(replacement, "a.txt"));
+    }
+
+    @Test
+    public void escapedCharactersAreLiteral() throws MalformedTagException {
+        RegexReplacement replacement = RegexReplacement.compile("a", "\\$1\\\\", false, false);
+
+        assertEquals("$1\\", replace(replacement, "a.txt"));
+    }
+
+    @Test
+    public void emptyReplacementRemovesMatches() throws MalformedTagException {
+        RegexReplacement replacement = RegexReplacement.compile("\\s+", "", false, true);
+
+        assertEquals("abc", replace(replacement, "a b  c.txt"));
+    }
+
+    @Test(expected = MalformedTagException.class)
+    public void emptyRegexIsRejected() throws MalformedTagException {
+        RegexReplacement.compile("", "x", false, false);
+    }
+
+    @Test(expected = MalformedTagException.class)
+    public void invalidRegexIsRejected() throws MalformedTagException {
+        RegexReplacement.compile("(", "x", false, false);
+    }
+
+    @Test(expected = MalformedTagException.class)
+    public void missingGroupIsRejected() throws MalformedTagException {
+        RegexReplacement.compile("a", "$1", false, false);
+    }
+
+    @Test(expected = MalformedTagException.class)
+    public void danglingEscapeIsRejected() throws MalformedTagException {
+        RegexReplacement.compile("a", "x\\", false, false);
+    }
+}
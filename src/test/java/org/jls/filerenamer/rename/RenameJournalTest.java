@@ -0,0 +1,299 @@
+/*
+ * MIT License
+ *
+ * Copyright 2020 Julien LE SAUCE
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jls.filerenamer.rename;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.jls.filerenamer.util.FileInfo;
+import org.jls.filerenamer.util.TaskProgress;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RenameJournalTest {
+
+    private Path directory;
+    private Path path;
+    private List<RenameOperation> operations;
+
+    @Before
+    public void setUp() throws IOException {
+        this.directory = Files.createTempDirectory("journal");
+        this.path = this.directory.resolve("rename.journal");
+        this.operations = new ArrayList<>();
+        this.operations.add(new RenameOperation(new FileInfo(this.directory.resolve("a").toFile()), "b"));
+        this.operations.add(new RenameOperation(new FileInfo(this.directory.resolve("c").toFile()), "d"));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(this.directory.toFile());
+    }
+
+    // Journals the plan and the move of its first operation
+    private void writeBatch(final boolean end) throws IOException {
+        RenameSchedule schedule = RenamePlanner.schedule(this.operations, new RenameReport(this.operations.size()));
+        try (RenameJournal journal = new RenameJournal(this.path)) {
+            journal.begin();
+            journal.plan(this.operations, schedule, 0);
+            RenameOperation first = this.operations.get(0);
+            journal.recordMove(0, first.getSource(), first.getTarget());
+            if (end) {
+                journal.end();
+            }
+        }
+    }
+
+    // Offset of the last record that contains the given path
+    private long lastRecordOf(final File file) throws IOException {
+        byte[] bytes = Files.readAllBytes(this.path);
+        byte[] pattern = file.getPath().getBytes(StandardCharsets.UTF_8);
+        for (int i = bytes.length - pattern.length; i >= 0; i--) {
+            int j = 0;
+            while (j < pattern.length && bytes[i + j] == pattern[j]) {
+                j++;
+            }
+            if (j == pattern.length) {
+                return i;
+            }
+        }
+        throw new AssertionError(file + " is not journaled");
+    }
+
+    @Test
+    public void missingJournalIsEmpty() throws IOException {
+        JournalBatch batch = RenameJournal.readLastBatch(this.path);
+
+        assertTrue(batch.isEmpty());
+        assertFalse(batch.isInterrupted());
+    }
+
+    @Test
+    public void completeBatchIsReadBack() throws IOException {
+        writeBatch(true);
+
+        JournalBatch batch = RenameJournal.readLastBatch(this.path);
+
+        assertFalse(batch.isEmpty());
+        assertFalse(batch.isInterrupted());
+        assertEquals(2, batch.size());
+        assertEquals(1, batch.getNbMoves());
+    }
+
+    @Test
+    public void batchWithoutEndIsInterrupted() throws IOException {
+        writeBatch(false);
+
+        JournalBatch batch = RenameJournal.readLastBatch(this.path);
+
+        assertTrue(batch.isInterrupted());
+        assertEquals(2, batch.size());
+        assertEquals(1, batch.getNbMoves());
+    }
+
+    @Test
+    public void newBatchReplacesLastOne() throws IOException {
+        writeBatch(true);
+        this.operations.remove(1);
+        writeBatch(false);
+
+        JournalBatch batch = RenameJournal.readLastBatch(this.path);
+
+        assertTrue(batch.isInterrupted());
+        assertEquals(1, batch.size());
+    }
+
+    @Test
+    public void corruptedRecordEndsTheJournal() throws IOException {
+        writeBatch(true);
+        // The last record naming the target is the move, followed by the end of the batch
+        long offset = lastRecordOf(this.operations.get(0).getTarget());
+        try (FileChannel channel = FileChannel.open(this.path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            channel.read(b, offset);
+            b.put(0, (byte) (b.get(0) ^ 1)).rewind();
+            channel.write(b, offset);
+        }
+
+        JournalBatch batch = RenameJournal.readLastBatch(this.path);
+
+        assertTrue(batch.isInterrupted());
+        assertEquals(2, batch.size());
+        assertEquals(0, batch.getNbMoves());
+    }
+
+    @Test
+    public void tornTailIsIgnored() throws IOException {
+        writeBatch(false);
+        long offset = lastRecordOf(this.operations.get(0).getTarget());
+        try (FileChannel channel = FileChannel.open(this.path, StandardOpenOption.WRITE)) {
+            channel.truncate(offset);
+        }
+
+        JournalBatch batch = RenameJournal.readLastBatch(this.path);
+
+        assertTrue(batch.isInterrupted());
+        assertEquals(2, batch.size());
+        assertEquals(0, batch.getNbMoves());
+    }
+
+    @Test
+    public void refusedOperationsAreNotReplayed() throws IOException {
+        File a = this.directory.resolve("a").toFile();
+        File b = this.directory.resolve("b").toFile();
+        File c = this.directory.resolve("c").toFile();
+        File d = this.directory.resolve("d").toFile();
+        File g = this.directory.resolve("g").toFile();
+        File h = this.directory.resolve("h").toFile();
+        for (File file : new File[]{a, b, d}) {
+            Files.createFile(file.toPath());
+        }
+        List<RenameOperation> operations = new ArrayList<>();
+        operations.add(new RenameOperation(new FileInfo(a), "a"));
+        operations.add(new RenameOperation(new FileInfo(b), "c"));
+        operations.add(new RenameOperation(new FileInfo(d), "c"));
+        // h/x moves into g, which is renamed to h : each rename waits for the other
+        operations.add(new RenameOperation(new FileInfo(g), "h"));
+        operations.add(new RenameOperation(new FileInfo(new File(h, "x")), new File(g, "x")));
+        RenameReport report = new RenameReport(operations.size());
+        RenameSchedule schedule = RenamePlanner.schedule(operations, report);
+        assertEquals(1, report.count(RenameOutcome.PENDING));
+
+        try (RenameJournal journal = new RenameJournal(this.path)) {
+            journal.begin();
+            journal.plan(operations, schedule, 0);
+        }
+        JournalBatch batch = RenameJournal.readLastBatch(this.path);
+        assertEquals(1, batch.size());
+        List<File[]> pending = pendingMoves(batch).get(0);
+        assertEquals(1, pending.size());
+        assertArrayEquals(new File[]{b, c}, pending.get(0));
+        assertTrue(revertMoves(batch).get(0).isEmpty());
+
+        Files.move(b.toPath(), c.toPath());
+        assertTrue(pendingMoves(batch).get(0).isEmpty());
+        List<File[]> revert = revertMoves(batch).get(0);
+        assertEquals(1, revert.size());
+        assertArrayEquals(new File[]{c, b}, revert.get(0));
+    }
+
+    @Test
+    public void plansAreRevertedFromTheLastOne() throws IOException {
+        try (RenameJournal journal = new RenameJournal(this.path)) {
+            journal.begin();
+            for (int i = 0; i < this.operations.size(); i++) {
+                List<RenameOperation> plan = this.operations.subList(i, i + 1);
+                journal.plan(plan, RenamePlanner.schedule(plan, new RenameReport(1)), i);
+                journal.recordMove(i, plan.get(0).getSource(), plan.get(0).getTarget());
+            }
+            journal.end();
+        }
+        JournalBatch batch = RenameJournal.readLastBatch(this.path);
+
+        List<List<File[]>> revert = revertMoves(batch);
+        assertEquals(2, revert.size());
+        assertArrayEquals(new File[]{new File(this.directory.toFile(), "d"), new File(this.directory.toFile(), "c")},
+                revert.get(0).get(0));
+        assertArrayEquals(new File[]{new File(this.directory.toFile(), "b"), new File(this.directory.toFile(), "a")},
+                revert.get(1).get(0));
+        List<List<File[]>> pending = pendingMoves(batch);
+        assertEquals(2, pending.size());
+        assertTrue(pending.get(0).isEmpty());
+        assertTrue(pending.get(1).isEmpty());
+    }
+
+    @Test
+    public void copyOutlivesTheJournal() throws IOException {
+        writeBatch(true);
+        JournalBatch copy = RenameJournal.readLastBatch(this.path).copyTo(this.directory.resolve("copy.journal"));
+        this.operations.remove(0);
+        writeBatch(false);
+
+        assertFalse(copy.isInterrupted());
+        assertEquals(2, copy.size());
+        List<File[]> revert = revertMoves(copy).get(0);
+        assertEquals(1, revert.size());
+        assertArrayEquals(new File[]{new File(this.directory.toFile(), "b"), new File(this.directory.toFile(), "a")},
+                revert.get(0));
+    }
+
+    @Test
+    public void plansAreReadAcrossRegions() throws IOException {
+        // About 2 KB per record, so the batch spans two regions of the journal
+        int nbPlans = 4;
+        int planSize = 2500;
+        String name = "x".repeat(1000);
+        try (RenameJournal journal = new RenameJournal(this.path)) {
+            journal.begin();
+            for (int p = 0; p < nbPlans; p++) {
+                List<RenameOperation> plan = new ArrayList<>();
+                for (int i = 0; i < planSize; i++) {
+                    File source = this.directory.resolve(name + "-" + p + "-" + i).toFile();
+                    plan.add(new RenameOperation(new FileInfo(source), name + "-" + p + "-" + i + ".new"));
+                }
+                journal.plan(plan, RenamePlanner.schedule(plan, new RenameReport(planSize)), p * planSize);
+            }
+        }
+        assertTrue(Files.size(this.path) > 16 * 1024 * 1024);
+        JournalBatch batch = RenameJournal.readLastBatch(this.path);
+        assertTrue(batch.isInterrupted());
+        assertEquals(nbPlans * planSize, batch.size());
+
+        List<List<File[]>> pending = pendingMoves(batch);
+        assertEquals(nbPlans, pending.size());
+        for (int p = 0; p < nbPlans; p++) {
+            assertEquals(planSize, pending.get(p).size());
+            File last = pending.get(p).get(planSize - 1)[0];
+            assertEquals(name + "-" + p + "-" + (planSize - 1), last.getName());
+        }
+    }
+
+    // Moves handed out by the batch, plan by plan
+    private static List<List<File[]>> pendingMoves(final JournalBatch batch) throws IOException {
+        List<List<File[]>> plans = new ArrayList<>();
+        batch.forEachPendingMoves(new TaskProgress("Resume", batch.size()), plans::add);
+        return plans;
+    }
+
+    private static List<List<File[]>> revertMoves(final JournalBatch batch) throws IOException {
+        List<List<File[]>> plans = new ArrayList<>();
+        batch.forEachRevertMoves(new TaskProgress("Revert", batch.size()), plans::add);
+        return plans;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * MIT License
+ *
+ * Copyright 2020 Julien LE SAUCE
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.jls.filerenamer.rename;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jls.filerenamer.util.FileInfo;
+import org.junit.Test;
+
+public class RenamePlannerTest {
+
+    private static final File DIR = new File(System.getProperty("java.io.tmpdir"), "planner");
+
+    private static RenameOperation operation(final String from, final String to) {
+        return new RenameOperation(new FileInfo(new File(DIR, from)), to);
+    }
+
+    private static int move(final int index) {
+        return RenameSchedule.step(index, RenameSchedule.MOVE);
+    }
+
+    @Test
+    public void chainRunsFromItsEnd() {
+        List<RenameOperation> operations = new ArrayList<>();
+        operations.add(operation("a", "b"));
+        operations.add(operation("b", "c"));
+        operations.add(operation("c", "d"));
+        RenameReport report = new RenameReport(operations.size());
+
+        RenameSchedule schedule = RenamePlanner.schedule(operations, report);
+
+        assertEquals(1, schedule.getSequences().size());
+        assertArrayEquals(new int[]{move(2), move(1), move(0)}, schedule.getSequences().get(0));
+        assertEquals(0, schedule.getNbTempFiles());
+        assertEquals(3, report.count(RenameOutcome.PENDING));
+    }
+
+    @Test
+    public void cycleGoesThroughTempName() {
+        List<RenameOperation> operations = new ArrayList<>();
+        operations.add(operation("a", "b"));
+        operations.add(operation("b", "c"));
+        operations.add(operation("c", "a"));
+        RenameReport report = new RenameReport(operations.size());
+
+        RenameSchedule schedule = RenamePlanner.schedule(operations, report);
+
+        assertEquals(1, schedule.getSequences().size());
+        int[] expected = {RenameSchedule.step(0, RenameSchedule.TO_TEMP), move(2), move(1),
+                RenameSchedule.step(0, RenameSchedule.FROM_TEMP)};
+        assertArrayEquals(expected, schedule.getSequences().get(0));
+        assertEquals(1, schedule.getNbTempFiles());
+        File tempFile = schedule.getTempFile(0);
+        assertNotNull(tempFile);
+        assertEquals(DIR, tempFile.getParentFile());
+        assertTrue(tempFile.getName().startsWith(".filerenamer-"));
+        assertTrue(tempFile.getName().endsWith("-0.tmp"));
+        assertNull(schedule.getTempFile(1));
+    }
+
+    @Test
+    public void swapUsesSingleTempName() {
+        List<RenameOperation> operations = new ArrayList<>();
+        operations.add(operation("a", "b"));
+        operations.add(operation("b", "a"));
+        operations.add(operation("x", "y"));
+        RenameReport report = new RenameReport(operations.size());
+
+        RenameSchedule schedule = RenamePlanner.schedule(operations, report);
+
+        assertEquals(2, schedule.getSequences().size());
+        assertArrayEquals(new int[]{move(2)}, schedule.getSequences().get(0));
+        assertArrayEquals(new int[]{RenameSchedule.step(0, RenameSchedule.TO_TEMP), move(1),
+                RenameSchedule.step(0, RenameSchedule.FROM_TEMP)}, schedule.getSequences().get(1));
+        assertEquals(1, schedule.getNbTempFiles());
+    }
+
+    @Test
+    public void refusedOperationsAreNotScheduled() {
+        List<RenameOperation> operations = new ArrayList<>();
+        operations.add(operation("a", "a"));
+        operations.add(operation("b", "c"));
+        operations.add(operation("d", "c"));
+        RenameReport report = new RenameReport(operations.size());
+
+        RenameSchedule schedule = RenamePlanner.schedule(operations, report);
+
+        assertEquals(1, schedule.getSequences().size());
+        assertArrayEquals(new int[]{move(1)}, schedule.getSequences().get(0));
+        assertEquals(OutcomeReason.NAME_UNCHANGED, report.getOutcomeReason(0));
+        assertEquals(RenameOutcome.PENDING, report.getOutcome(1));
+        assertEquals(RenameOutcome.FAILED, report.getOutcome(2));
+        assertEquals(OutcomeReason.DUPLICATE_TARGET, report.getOutcomeReason(2));
+    }
+
+    @Test
+    public void caseOnlyRenameIsScheduled() {
+        List<RenameOperation> operations = new ArrayList<>();
+        operations.add(operation("a.jpg", "A.jpg"));
+        operations.add(operation("b.jpg", "b.jpg"));
+        RenameReport report = new RenameReport(operations.size());
+
+        RenameSchedule schedule = RenamePlanner.schedule(operations, report);
+
+        assertFalse(operations.get(0).isUnchanged());
+        assertTrue(operations.get(1).isUnchanged());
+        assertEquals(RenameOutcome.PENDING, report.getOutcome(0));
+        assertEquals(OutcomeReason.NAME_UNCHANGED, report.getOutcomeReason(1));
+        assertEquals(1, schedule.getSequences().size());
+        assertEquals(0, RenameSchedule.indexOf(schedule.getSequences().get(0)[0]));
+    }
+}